@@ -0,0 +1,131 @@
+package snaptris;
+
+/**
+ * A class to play a PlayView automatically (for attract and soak mode): For each new block, it evaluates every
+ * rotation and column with a BoardBatch, then rotates, moves and drops the block one action per frame.
+ */
+public class AutoPlayer {
+
+    // The PlayView
+    private PlayView _playView;
+
+    // The block that moves were planned for
+    private Block _block;
+
+    // The number of rotations and target column for block
+    private int _rotateCount, _targetCol;
+
+    // The batch to evaluate candidate boards
+    private BoardBatch _boardBatch = new BoardBatch(64);
+
+    // The rotation count and column for each candidate board
+    private int[] _candidateRotations = new int[64], _candidateCols = new int[64];
+
+    // The scratch board row masks (bottom row first)
+    private int[] _boardRows = new int[PlayView.GRID_HEIGHT];
+
+    /**
+     * Constructor for PlayView.
+     */
+    public AutoPlayer(PlayView aPlayView)
+    {
+        _playView = aPlayView;
+    }
+
+    /**
+     * Called for each PlayView timer tick: Plans moves for new block and performs next action.
+     */
+    public void frameAdvanced()
+    {
+        // If new block, plan moves
+        Block block = _playView.getBlock();
+        if (block != _block) {
+            _block = block;
+            planMoves();
+        }
+
+        // Rotate, then move to target column, then drop
+        if (_rotateCount > 0) {
+            _playView.rotateBlock();
+            _rotateCount--;
+            return;
+        }
+        int blockCol = _playView.getBlockCol();
+        if (blockCol < _targetCol)
+            _playView.moveRight();
+        else if (blockCol > _targetCol)
+            _playView.moveLeft();
+        else _playView.dropBlock();
+    }
+
+    /**
+     * Plans moves for current block by evaluating the board for every rotation and column.
+     */
+    private void planMoves()
+    {
+        int[] stackRows = _playView.getStackRowMasks();
+        _boardBatch.clear();
+
+        // Iterate over block rotations
+        Pattern firstPattern = _block._pattern, pattern = firstPattern;
+        for (int rotation = 0; rotation < 4; rotation++) {
+
+            // Iterate over columns and add board for block dropped there
+            for (int col = 0; col + pattern.colCount <= PlayView.GRID_WIDTH; col++) {
+                dropPattern(stackRows, pattern, col);
+                int board = _boardBatch.addBoard(_boardRows);
+                _candidateRotations[board] = rotation;
+                _candidateCols[board] = col;
+            }
+
+            // Get next rotation (stop if back to first)
+            pattern = pattern.getRotateRight();
+            if (pattern == firstPattern)
+                break;
+        }
+
+        // Evaluate boards and set moves for best
+        _boardBatch.evaluate();
+        _boardBatch.computeScores(BoardBatch.DEFAULT_WEIGHTS);
+        int best = _boardBatch.getBestBoard();
+        _rotateCount = _candidateRotations[best];
+        _targetCol = _candidateCols[best];
+    }
+
+    /**
+     * Sets board rows to given stack rows with given pattern dropped at given column.
+     */
+    private void dropPattern(int[] theStackRows, Pattern aPattern, int aCol)
+    {
+        // Copy stack rows
+        int rowCount = _boardRows.length;
+        System.arraycopy(theStackRows, 0, _boardRows, 0, theStackRows.length);
+        for (int row = theStackRows.length; row < rowCount; row++)
+            _boardRows[row] = 0;
+
+        // Lower pattern bottom row from top of stack while it doesn't hit
+        int bottomRow = theStackRows.length;
+        while (bottomRow > 0 && !isPatternHit(aPattern, aCol, bottomRow - 1))
+            bottomRow--;
+
+        // Add pattern rows (pattern rows are top row first)
+        for (int i = 0; i < aPattern.rowCount; i++) {
+            int row = bottomRow + aPattern.rowCount - 1 - i;
+            if (row < rowCount)
+                _boardRows[row] |= aPattern.getRowMask(i, aCol);
+        }
+    }
+
+    /**
+     * Returns whether given pattern at given column and bottom row hits board rows.
+     */
+    private boolean isPatternHit(Pattern aPattern, int aCol, int aBottomRow)
+    {
+        for (int i = 0; i < aPattern.rowCount; i++) {
+            int row = aBottomRow + aPattern.rowCount - 1 - i;
+            if (row < _boardRows.length && (_boardRows[row] & aPattern.getRowMask(i, aCol)) != 0)
+                return true;
+        }
+        return false;
+    }
+}
@@ -26,6 +26,7 @@ public class Block extends View {
         // Set pattern
         _pattern = aPattern;
         setSizeFromPattern();
+        SoakMonitor.addLiveView(this);
     }
 
     /**
@@ -48,7 +49,9 @@ public class Block extends View {
      */
     public void rotateRight()
     {
+        int kickX = _pattern.rotateKickX;
         _pattern = _pattern.getRotateRight();
+        setX(getX() + kickX * TILE_SIZE);
         setSizeFromPattern();
     }
 
@@ -63,6 +66,15 @@ public class Block extends View {
         setPrefSize(blockW, blockH);
     }
 
+    /**
+     * Resets shadow effect, so cached shadow image is re-rendered (at new scale) on next paint.
+     */
+    public void resetEffect()
+    {
+        setEffect(null);
+        setEffect(BLOCK_EFFECT);
+    }
+
     /**
      * Paint block pattern.
      */
@@ -77,12 +89,11 @@ public class Block extends View {
     public Block getCopy()  { return new Block(_pattern); }
 
     /**
-     * Returns a block with random pattern.
+     * Returns a block with random pattern from given pattern set.
      */
-    public static Block getRandomBlock()
+    public static Block getRandomBlock(PatternSet aPatternSet)
     {
-        int randomIndex = (int) Math.floor(Math.random() * Pattern.ALL_PATTERNS.length);
-        Pattern randomPattern = Pattern.ALL_PATTERNS[randomIndex];
+        Pattern randomPattern = aPatternSet.getRandomPattern();
         return new Block(randomPattern);
     }
 }
\ No newline at end of file
@@ -0,0 +1,250 @@
+package snaptris;
+import java.util.*;
+
+/**
+ * A class to evaluate many boards at once (for bot search), with boards packed in primitive struct-of-arrays layout:
+ * Rows are int column bitmasks stored row by row for all boards, and features are stored in per-board arrays,
+ * so feature loops run over contiguous board indexes.
+ */
+public class BoardBatch {
+
+    // The max number of boards
+    private int _capacity;
+
+    // The number of boards
+    private int _count;
+
+    // The number of columns and rows in each board
+    private int _colCount, _rowCount;
+
+    // The bitmask for a full row
+    private int _fullMask;
+
+    // The row bitmasks (bit 0 is leftmost column), indexed by row * capacity + board (row 0 is bottom)
+    private int[] _rows;
+
+    // The column heights and filled tile counts, indexed by col * capacity + board
+    private int[] _colHeights, _colFilled;
+
+    // The board features
+    private int[] _aggregateHeights, _holes, _bumpiness, _completedLines;
+
+    // The board scores
+    private double[] _scores;
+
+    // Standard feature weights for score (aggregate height, completed lines, holes, bumpiness)
+    public static final double[] DEFAULT_WEIGHTS = { -.510066, .760666, -.35663, -.184483 };
+
+    /**
+     * Constructor for capacity and PlayView grid size.
+     */
+    public BoardBatch(int aCapacity)
+    {
+        this(aCapacity, PlayView.GRID_WIDTH, PlayView.GRID_HEIGHT);
+    }
+
+    /**
+     * Constructor for capacity and board column/row count.
+     */
+    public BoardBatch(int aCapacity, int aColCount, int aRowCount)
+    {
+        if (aColCount > 31)
+            throw new IllegalArgumentException("BoardBatch: Column count must be less than 32: " + aColCount);
+        _capacity = aCapacity;
+        _colCount = aColCount;
+        _rowCount = aRowCount;
+        _fullMask = (1 << aColCount) - 1;
+        _rows = new int[aRowCount * aCapacity];
+        _colHeights = new int[aColCount * aCapacity];
+        _colFilled = new int[aColCount * aCapacity];
+        _aggregateHeights = new int[aCapacity];
+        _holes = new int[aCapacity];
+        _bumpiness = new int[aCapacity];
+        _completedLines = new int[aCapacity];
+        _scores = new double[aCapacity];
+    }
+
+    /**
+     * Returns the max number of boards.
+     */
+    public int getCapacity()  { return _capacity; }
+
+    /**
+     * Returns the number of boards.
+     */
+    public int getCount()  { return _count; }
+
+    /**
+     * Removes all boards.
+     */
+    public void clear()
+    {
+        Arrays.fill(_rows, 0);
+        _count = 0;
+    }
+
+    /**
+     * Adds a board for given row bitmasks (bottom row first, like PlayView.getStackRowMasks()) and returns its index.
+     */
+    public int addBoard(int[] theRowMasks)
+    {
+        if (_count >= _capacity)
+            throw new IllegalStateException("BoardBatch: Full");
+        if (theRowMasks.length > _rowCount)
+            throw new IllegalArgumentException("BoardBatch: Too many rows: " + theRowMasks.length);
+
+        // Copy rows (any remaining rows were cleared)
+        int board = _count++;
+        for (int row = 0; row < theRowMasks.length; row++)
+            _rows[row * _capacity + board] = theRowMasks[row];
+        return board;
+    }
+
+    /**
+     * Computes features for all boards (heights, holes and bumpiness are measured after clearing completed lines).
+     */
+    public void evaluate()
+    {
+        int count = _count, capacity = _capacity;
+        int[] rows = _rows, colHeights = _colHeights, colFilled = _colFilled;
+
+        // Reset column and line counts
+        Arrays.fill(colHeights, 0);
+        Arrays.fill(colFilled, 0);
+        Arrays.fill(_completedLines, 0, count, 0);
+
+        // Iterate over rows (bottom up) and update completed lines, column heights and filled counts for all boards.
+        // Features are measured after clearing lines: Completed rows are skipped and rows above them are compacted down.
+        int[] completedLines = _completedLines;
+        for (int row = 0; row < _rowCount; row++) {
+            int rowStart = row * capacity;
+            for (int board = 0; board < count; board++)
+                completedLines[board] += rows[rowStart + board] == _fullMask ? 1 : 0;
+            for (int col = 0; col < _colCount; col++) {
+                int colStart = col * capacity;
+                for (int board = 0; board < count; board++) {
+                    int rowMask = rows[rowStart + board];
+                    int bit = rowMask != _fullMask ? rowMask >>> col & 1 : 0;
+                    int rowHeight = row + 1 - completedLines[board];
+                    colHeights[colStart + board] = Math.max(colHeights[colStart + board], bit * rowHeight);
+                    colFilled[colStart + board] += bit;
+                }
+            }
+        }
+
+        // Get aggregate height and holes (empty cells below column tops)
+        Arrays.fill(_aggregateHeights, 0, count, 0);
+        Arrays.fill(_holes, 0, count, 0);
+        for (int col = 0; col < _colCount; col++) {
+            int colStart = col * capacity;
+            for (int board = 0; board < count; board++) {
+                int height = colHeights[colStart + board];
+                _aggregateHeights[board] += height;
+                _holes[board] += height - colFilled[colStart + board];
+            }
+        }
+
+        // Get bumpiness (sum of adjacent column height differences)
+        Arrays.fill(_bumpiness, 0, count, 0);
+        for (int col = 0; col < _colCount - 1; col++) {
+            int colStart = col * capacity, nextStart = colStart + capacity;
+            for (int board = 0; board < count; board++)
+                _bumpiness[board] += Math.abs(colHeights[colStart + board] - colHeights[nextStart + board]);
+        }
+    }
+
+    /**
+     * Computes scores for all boards from features (call evaluate() first) and given weights for
+     * aggregate height, completed lines, holes and bumpiness.
+     */
+    public double[] computeScores(double[] theWeights)
+    {
+        double heightW = theWeights[0], linesW = theWeights[1], holesW = theWeights[2], bumpW = theWeights[3];
+        for (int board = 0; board < _count; board++)
+            _scores[board] = heightW * _aggregateHeights[board] + linesW * _completedLines[board] +
+                holesW * _holes[board] + bumpW * _bumpiness[board];
+        return _scores;
+    }
+
+    /**
+     * Returns the index of the board with best score (call computeScores() first).
+     */
+    public int getBestBoard()
+    {
+        int best = -1;
+        for (int board = 0; board < _count; board++)
+            if (best < 0 || _scores[board] > _scores[best])
+                best = board;
+        return best;
+    }
+
+    /**
+     * Returns the column height for given board and column.
+     */
+    public int getColHeight(int aBoard, int aCol)  { return _colHeights[aCol * _capacity + aBoard]; }
+
+    /**
+     * Returns the aggregate height for given board.
+     */
+    public int getAggregateHeight(int aBoard)  { return _aggregateHeights[aBoard]; }
+
+    /**
+     * Returns the number of holes for given board.
+     */
+    public int getHoles(int aBoard)  { return _holes[aBoard]; }
+
+    /**
+     * Returns the bumpiness for given board.
+     */
+    public int getBumpiness(int aBoard)  { return _bumpiness[aBoard]; }
+
+    /**
+     * Returns the number of completed lines for given board.
+     */
+    public int getCompletedLines(int aBoard)  { return _completedLines[aBoard]; }
+
+    /**
+     * Returns the score for given board.
+     */
+    public double getScore(int aBoard)  { return _scores[aBoard]; }
+
+    /**
+     * Benchmark main method: Evaluates batches of random boards and prints boards evaluated per second.
+     */
+    public static void main(String[] args)
+    {
+        int capacity = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        BoardBatch boardBatch = new BoardBatch(capacity);
+
+        // Fill batch with random boards of random stack heights
+        Random random = new Random(1);
+        int[] rowMasks = new int[boardBatch._rowCount];
+        for (int board = 0; board < capacity; board++) {
+            int rowCount = random.nextInt(boardBatch._rowCount);
+            for (int row = 0; row < rowCount; row++)
+                rowMasks[row] = random.nextInt(boardBatch._fullMask + 1);
+            boardBatch.addBoard(Arrays.copyOf(rowMasks, rowCount));
+        }
+
+        // Warm up
+        for (int i = 0; i < 200; i++) {
+            boardBatch.evaluate();
+            boardBatch.computeScores(DEFAULT_WEIGHTS);
+        }
+
+        // Run for given seconds
+        long startTime = System.nanoTime(), endTime = startTime + seconds * 1000000000L;
+        long batchCount = 0, time;
+        do {
+            boardBatch.evaluate();
+            boardBatch.computeScores(DEFAULT_WEIGHTS);
+            batchCount++;
+        } while ((time = System.nanoTime()) < endTime);
+
+        // Print results
+        double boardsPerSec = batchCount * capacity / ((time - startTime) / 1e9);
+        System.out.printf("BoardBatch: %d boards x %d batches: %.0f boards/sec (best board %d)%n",
+            capacity, batchCount, boardsPerSec, boardBatch.getBestBoard());
+    }
+}
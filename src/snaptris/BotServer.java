@@ -0,0 +1,276 @@
+package snaptris;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import snap.view.ViewUtils;
+
+/**
+ * A class to let an external bot process control a PlayView with a line protocol over stdin/stdout or a loopback socket.
+ *
+ * Messages to bot (one line each):
+ *   STATE <seq> <piece> <pieceCol> <pieceRowMasks> <nextPiece> <boardRowMasks>
+ *   GAMEOVER <seq>
+ * where masks are comma separated ints (bit 0 is leftmost column), pieceRowMasks are top row first
+ * and boardRowMasks are bottom row first.
+ *
+ * Messages from bot:
+ *   ACT <seq> <action>[,<action>...]    with actions moveLeft, moveRight, rotateBlock, dropBlock
+ *   RESTART
+ *   STATS                               answered with STATS messages=<n> avgLatency=<ms>ms maxLatency=<ms>ms
+ *
+ * Bots may pipeline ACT messages without waiting for the next STATE. In lockstep mode, the game doesn't advance
+ * after sending a STATE until the ACT for that seq arrives.
+ */
+public class BotServer {
+
+    // The PlayView
+    private PlayView _playView;
+
+    // The loopback port (or 0 to use stdin/stdout)
+    private int _port;
+
+    // Whether game waits for bot actions for each new piece
+    private boolean _lockstep;
+
+    // The queue of ACT messages (split into parts) received from bot, waiting to be applied on app thread
+    private Queue<String[]> _actions = new ConcurrentLinkedQueue<>();
+
+    // The queue of messages waiting to be written to bot
+    private BlockingQueue<String> _messages = new LinkedBlockingQueue<>();
+
+    // The last block sent to bot and its seq
+    private Block _lastBlock;
+    private int _seq;
+
+    // The seq of the last ACT applied (on app thread)
+    private int _ackSeq;
+
+    // Whether connection to bot is closed
+    private volatile boolean _closed;
+
+    // The send times (nanos) of STATE messages waiting for ACT, by seq
+    private Map<Integer,Long> _sendTimes = new ConcurrentHashMap<>();
+
+    // The latency stats: message count, total and max latency (nanos)
+    private int _latencyCount;
+    private long _latencyTotal, _latencyMax;
+
+    // Constants for actions
+    public static final String MOVE_LEFT = "moveLeft";
+    public static final String MOVE_RIGHT = "moveRight";
+    public static final String ROTATE_BLOCK = "rotateBlock";
+    public static final String DROP_BLOCK = "dropBlock";
+
+    /**
+     * Constructor for PlayView, loopback port (or 0 to use stdin/stdout) and whether lockstep.
+     */
+    public BotServer(PlayView aPlayView, int aPort, boolean isLockstep)
+    {
+        _playView = aPlayView;
+        _port = aPort;
+        _lockstep = isLockstep;
+    }
+
+    /**
+     * Returns whether game waits for bot actions for each new piece.
+     */
+    public boolean isLockstep()  { return _lockstep; }
+
+    /**
+     * Returns whether connection to bot is closed.
+     */
+    public boolean isClosed()  { return _closed; }
+
+    /**
+     * Starts connection and reader/writer threads.
+     */
+    public void start()
+    {
+        new Thread(this::connectAndRead, "Snaptris BotServer").start();
+    }
+
+    /**
+     * Connects to bot (stdin/stdout or first loopback socket client), starts writer and reads messages until closed.
+     */
+    private void connectAndRead()
+    {
+        try {
+            // Get streams
+            InputStream inputStream = System.in;
+            OutputStream outputStream = System.out;
+            if (_port > 0) {
+                ServerSocket serverSocket = new ServerSocket(_port, 1, InetAddress.getLoopbackAddress());
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                serverSocket.close();
+                inputStream = socket.getInputStream();
+                outputStream = socket.getOutputStream();
+            }
+
+            // Start writer thread
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8"));
+            Thread writerThread = new Thread(() -> writeMessages(writer), "Snaptris BotServer Writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+
+            // Read messages
+            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+            for (String line = reader.readLine(); line != null; line = reader.readLine())
+                readMessage(line.trim());
+        }
+        catch (IOException e) { System.err.println("BotServer: " + e); }
+        _closed = true;
+
+        // Print stats on disconnect
+        System.err.println("BotServer: Disconnected: " + getStatsString());
+    }
+
+    /**
+     * Writes queued messages, flushing only when queue is empty so pipelined messages are batched.
+     */
+    private void writeMessages(Writer aWriter)
+    {
+        try {
+            while (true) {
+                aWriter.write(_messages.take());
+                aWriter.write('\n');
+                if (_messages.isEmpty())
+                    aWriter.flush();
+            }
+        }
+        catch (Exception e) { System.err.println("BotServer: " + e); }
+    }
+
+    /**
+     * Reads a message from bot.
+     */
+    private void readMessage(String aLine)
+    {
+        String[] parts = aLine.split("\\s+");
+
+        // Handle ACT: Record latency and queue actions
+        if (parts[0].equals("ACT") && parts.length >= 2) {
+            int seq;
+            try { seq = Integer.parseInt(parts[1]); }
+            catch (NumberFormatException e) { System.err.println("BotServer: Invalid seq: " + aLine); return; }
+            Long sendTime = _sendTimes.remove(seq);
+            if (sendTime != null)
+                addLatency(System.nanoTime() - sendTime);
+            _actions.add(parts);
+        }
+
+        // Handle RESTART
+        else if (parts[0].equals("RESTART"))
+            ViewUtils.runLater(() -> _playView.startGame());
+
+        // Handle STATS: Reply with latency stats so far
+        else if (parts[0].equals("STATS"))
+            _messages.add("STATS " + getStatsString());
+
+        // Handle unknown
+        else if (!aLine.isEmpty())
+            System.err.println("BotServer: Unknown message: " + aLine);
+    }
+
+    /**
+     * Called for each PlayView timer tick on app thread: Applies bot actions and sends state for new pieces.
+     * Returns whether game should advance this tick (false if waiting for bot in lockstep mode).
+     */
+    public boolean frameAdvanced()
+    {
+        // If new block, send state first (so queued batches for previous block are stale)
+        Block block = _playView.getBlock();
+        if (block != _lastBlock) {
+            _lastBlock = block;
+            sendState();
+        }
+
+        // Apply received action batches for current seq (skipping stale or unknown seqs)
+        for (String[] parts = _actions.poll(); parts != null; parts = _actions.poll()) {
+            if (Integer.parseInt(parts[1]) != _seq)
+                continue;
+            _ackSeq = _seq;
+            if (parts.length >= 3)
+                for (String action : parts[2].split(","))
+                    applyAction(action);
+        }
+
+        // Return false if waiting for bot
+        return !_lockstep || _ackSeq == _seq;
+    }
+
+    /**
+     * Called when game is over.
+     */
+    public void gameOver()
+    {
+        _lastBlock = null;
+        _messages.add("GAMEOVER " + _seq);
+    }
+
+    /**
+     * Applies given action to PlayView.
+     */
+    private void applyAction(String anAction)
+    {
+        switch (anAction) {
+            case MOVE_LEFT: _playView.moveLeft(); break;
+            case MOVE_RIGHT: _playView.moveRight(); break;
+            case ROTATE_BLOCK: _playView.rotateBlock(); break;
+            case DROP_BLOCK: _playView.dropBlock(); break;
+            default: System.err.println("BotServer: Unknown action: " + anAction);
+        }
+    }
+
+    /**
+     * Sends state of PlayView for current block.
+     */
+    private void sendState()
+    {
+        Block block = _playView.getBlock();
+        Block nextBlock = _playView.getNextBlock(false);
+        int seq = ++_seq;
+
+        // Build message
+        StringBuilder sb = new StringBuilder("STATE ").append(seq);
+        sb.append(' ').append(block._pattern.name).append(' ').append(_playView.getBlockCol()).append(' ');
+        appendMasks(sb, block._pattern.rowMasks);
+        sb.append(' ').append(nextBlock._pattern.name).append(' ');
+        appendMasks(sb, _playView.getStackRowMasks());
+
+        // Queue message
+        _sendTimes.put(seq, System.nanoTime());
+        _messages.add(sb.toString());
+    }
+
+    /**
+     * Appends given masks as comma separated list (or '-' if empty).
+     */
+    private static void appendMasks(StringBuilder aSB, int[] theMasks)
+    {
+        if (theMasks.length == 0)
+            aSB.append('-');
+        for (int i = 0; i < theMasks.length; i++)
+            aSB.append(i > 0 ? "," : "").append(theMasks[i]);
+    }
+
+    /**
+     * Adds a latency sample.
+     */
+    private synchronized void addLatency(long aLatency)
+    {
+        _latencyCount++;
+        _latencyTotal += aLatency;
+        _latencyMax = Math.max(_latencyMax, aLatency);
+    }
+
+    /**
+     * Returns a string of message latency stats.
+     */
+    public synchronized String getStatsString()
+    {
+        double avgMillis = _latencyCount > 0 ? _latencyTotal / (double) _latencyCount / 1e6 : 0;
+        return String.format("messages=%d avgLatency=%.3fms maxLatency=%.3fms", _latencyCount, avgMillis, _latencyMax / 1e6);
+    }
+}
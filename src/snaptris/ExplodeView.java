@@ -0,0 +1,295 @@
+package snaptris;
+import java.util.*;
+import snap.gfx.*;
+import snap.view.*;
+
+/**
+ * A view to show exploding views (like cleared rows) as fragment particles, drawn from a preallocated pool.
+ */
+public class ExplodeView extends View {
+
+    // The number of active particles
+    private int _count;
+
+    // The particle source images (one shared image per exploded view)
+    private Image[] _images = new Image[MAX_PARTICLES];
+
+    // The particle source rects in image coords and fragment sizes in view coords (packed x, y, w, h, fragW, fragH)
+    private double[] _frags = new double[MAX_PARTICLES * FRAG_STRIDE];
+
+    // The particle position, velocity, rotation and spin
+    private double[] _x = new double[MAX_PARTICLES], _y = new double[MAX_PARTICLES];
+    private double[] _vx = new double[MAX_PARTICLES], _vy = new double[MAX_PARTICLES];
+    private double[] _rot = new double[MAX_PARTICLES], _spin = new double[MAX_PARTICLES];
+
+    // The particle start time
+    private long[] _startTimes = new long[MAX_PARTICLES];
+
+    // The views waiting for a delayed explosion, and their start times
+    private List<View> _pendingViews = new ArrayList<>();
+    private List<Long> _pendingTimes = new ArrayList<>();
+
+    // The last frame time
+    private long _lastTime;
+
+    // Whether particles are stepped manually on a frame clock (for headless mode), and the frame clock time
+    private boolean _headless;
+    private long _frameTime;
+
+    // The Run to be called for each frame while particles are active
+    private Runnable _timerFiredRun;
+
+    // Constants
+    public static final int MAX_PARTICLES = 2000;
+    private static final int FRAGMENT_COLS = 20;
+    private static final int FRAGMENT_ROWS = 5;
+    private static final int PARTICLE_LIFE = 1200;
+    private static final double GRAVITY = 900;
+    private static final int FRAG_STRIDE = 6;
+
+    /**
+     * Constructor.
+     */
+    public ExplodeView()
+    {
+        super();
+        setManaged(false);
+        setPickable(false);
+    }
+
+    /**
+     * Returns the number of active particles.
+     */
+    public int getParticleCount()  { return _count; }
+
+    /**
+     * Returns the number of views waiting for a delayed explosion.
+     */
+    public int getPendingCount()  { return _pendingViews.size(); }
+
+    /**
+     * Returns whether particles are stepped manually on a frame clock (for headless mode).
+     */
+    public boolean isHeadless()  { return _headless; }
+
+    /**
+     * Sets whether particles are stepped manually on a frame clock (for headless mode).
+     */
+    public void setHeadless(boolean aValue)
+    {
+        if (aValue == _headless) return;
+        setTimerRunning(false);
+        _headless = aValue;
+    }
+
+    /**
+     * Advances frame clock by given milliseconds and updates particles (for headless mode).
+     */
+    public void stepFrame(int aMillis)
+    {
+        _lastTime = _frameTime;
+        _frameTime += aMillis;
+        if (_count > 0 || !_pendingViews.isEmpty())
+            timerFired();
+    }
+
+    /**
+     * Returns the current time: The frame clock time if headless, otherwise system time.
+     */
+    private long getTime()  { return _headless ? _frameTime : System.currentTimeMillis(); }
+
+    /**
+     * Explodes given view now.
+     */
+    public void explodeView(View aView)  { explodeView(aView, 0); }
+
+    /**
+     * Explodes given view after given delay in milliseconds.
+     */
+    public void explodeView(View aView, int aDelay)
+    {
+        // If no delay, remove any pending explosion for view and just explode
+        if (aDelay <= 0) {
+            int pendingIndex = _pendingViews.indexOf(aView);
+            if (pendingIndex >= 0) {
+                _pendingViews.remove(pendingIndex);
+                _pendingTimes.remove(pendingIndex);
+            }
+            addParticlesForView(aView, getTime());
+            return;
+        }
+
+        // Otherwise add to pending views and start timer
+        _pendingViews.add(aView);
+        _pendingTimes.add(getTime() + aDelay);
+        setTimerRunning(true);
+    }
+
+    /**
+     * Removes all particles and pending explosions.
+     */
+    public void clear()
+    {
+        Arrays.fill(_images, 0, _count, null);
+        _count = 0;
+        _pendingViews.clear();
+        _pendingTimes.clear();
+        setTimerRunning(false);
+        repaint();
+    }
+
+    /**
+     * Adds particles for given view: One cached image, sliced into fragments.
+     */
+    private void addParticlesForView(View aView, long aTime)
+    {
+        // Get view image and hide view
+        Image image = ViewUtils.getImage(aView);
+        double viewX = aView.getX() + aView.getTransX();
+        double viewY = aView.getY() + aView.getTransY();
+        double viewW = aView.getWidth();
+        double viewH = aView.getHeight();
+        aView.setVisible(false);
+
+        // Get fragment size in view and image coords
+        double fragW = viewW / FRAGMENT_COLS;
+        double fragH = viewH / FRAGMENT_ROWS;
+        double scaleX = image.getWidth() / viewW;
+        double scaleY = image.getHeight() / viewH;
+
+        // Iterate over fragments and add particle for each (until pool is full)
+        for (int row = 0; row < FRAGMENT_ROWS; row++) {
+            for (int col = 0; col < FRAGMENT_COLS; col++) {
+                if (_count >= MAX_PARTICLES)
+                    break;
+
+                // Set particle image and source rect
+                int i = _count++;
+                _images[i] = image;
+                int fragIndex = i * FRAG_STRIDE;
+                _frags[fragIndex] = col * fragW * scaleX;
+                _frags[fragIndex + 1] = row * fragH * scaleY;
+                _frags[fragIndex + 2] = fragW * scaleX;
+                _frags[fragIndex + 3] = fragH * scaleY;
+                _frags[fragIndex + 4] = fragW;
+                _frags[fragIndex + 5] = fragH;
+
+                // Set particle position and velocity (outward from view center, kicked upward)
+                _x[i] = viewX + col * fragW;
+                _y[i] = viewY + row * fragH;
+                double dx = (col + .5) / FRAGMENT_COLS - .5;
+                double dy = (row + .5) / FRAGMENT_ROWS - .5;
+                _vx[i] = dx * 600 + (Math.random() - .5) * 200;
+                _vy[i] = dy * 300 - 150 - Math.random() * 250;
+                _rot[i] = 0;
+                _spin[i] = (Math.random() - .5) * 720;
+                _startTimes[i] = aTime;
+            }
+        }
+
+        // Start timer and repaint
+        setTimerRunning(true);
+        repaint();
+    }
+
+    /**
+     * Removes particle at given index by moving last particle into its place.
+     */
+    private void removeParticle(int anIndex)
+    {
+        int last = --_count;
+        _images[anIndex] = _images[last];
+        System.arraycopy(_frags, last * FRAG_STRIDE, _frags, anIndex * FRAG_STRIDE, FRAG_STRIDE);
+        _x[anIndex] = _x[last]; _y[anIndex] = _y[last];
+        _vx[anIndex] = _vx[last]; _vy[anIndex] = _vy[last];
+        _rot[anIndex] = _rot[last]; _spin[anIndex] = _spin[last];
+        _startTimes[anIndex] = _startTimes[last];
+        _images[last] = null;
+    }
+
+    /**
+     * Returns whether timer is running.
+     */
+    private boolean isTimerRunning()  { return _timerFiredRun != null; }
+
+    /**
+     * Sets whether timer is running.
+     */
+    private void setTimerRunning(boolean aValue)
+    {
+        if (aValue == isTimerRunning() || _headless) return;
+
+        // Start timer
+        if (_timerFiredRun == null) {
+            _timerFiredRun = this::timerFired;
+            _lastTime = System.currentTimeMillis();
+            getEnv().runIntervals(_timerFiredRun, 20);
+        }
+
+        // Stop timer
+        else {
+            getEnv().stopIntervals(_timerFiredRun);
+            _timerFiredRun = null;
+        }
+    }
+
+    /**
+     * Called when timer fires.
+     */
+    void timerFired()
+    {
+        long time = getTime();
+        double dt = (time - _lastTime) / 1000d;
+        _lastTime = time;
+
+        // Start pending explosions that are due
+        for (int i = _pendingViews.size() - 1; i >= 0; i--) {
+            if (_pendingTimes.get(i) > time)
+                continue;
+            View view = _pendingViews.remove(i);
+            _pendingTimes.remove(i);
+            addParticlesForView(view, time);
+        }
+
+        // Update particles and remove expired
+        for (int i = _count - 1; i >= 0; i--) {
+            if (time - _startTimes[i] >= PARTICLE_LIFE) {
+                removeParticle(i);
+                continue;
+            }
+            _vy[i] += GRAVITY * dt;
+            _x[i] += _vx[i] * dt;
+            _y[i] += _vy[i] * dt;
+            _rot[i] += _spin[i] * dt;
+        }
+
+        // If nothing left to animate, stop timer
+        if (_count == 0 && _pendingViews.isEmpty())
+            setTimerRunning(false);
+        repaint();
+    }
+
+    /**
+     * Paint particles.
+     */
+    protected void paintFront(Painter aPntr)
+    {
+        long time = getTime();
+        double opacity = aPntr.getOpacity();
+
+        // Iterate over particles and paint fragment of source image
+        for (int i = 0; i < _count; i++) {
+            int fragIndex = i * FRAG_STRIDE;
+            double fragW = _frags[fragIndex + 4];
+            double fragH = _frags[fragIndex + 5];
+            double age = Math.min((time - _startTimes[i]) / (double) PARTICLE_LIFE, 1);
+            aPntr.save();
+            aPntr.setOpacity(opacity * (1 - age));
+            aPntr.translate(_x[i] + fragW / 2, _y[i] + fragH / 2);
+            aPntr.rotate(_rot[i]);
+            aPntr.drawImage(_images[i], _frags[fragIndex], _frags[fragIndex + 1], _frags[fragIndex + 2], _frags[fragIndex + 3],
+                -fragW / 2, -fragH / 2, fragW, fragH);
+            aPntr.restore();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package snaptris;
+import java.io.*;
+import java.util.concurrent.*;
+import snap.gfx.Image;
+import snap.view.*;
+
+/**
+ * A class to capture frames of a view offscreen at a fixed frame rate and write them on a background encoder thread,
+ * as a PNG image sequence or an uncompressed YUV4MPEG2 (.y4m) video.
+ */
+public class FrameRecorder {
+
+    // The output directory
+    private File _dir;
+
+    // The output format
+    private Format _format;
+
+    // The frame rate
+    private int _frameRate;
+
+    // Whether capture waits for queue space (for headless capture) instead of dropping frames
+    private boolean _blocking;
+
+    // The queue of captured frame images waiting to be encoded
+    private BlockingQueue<Object> _queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+
+    // The encoder thread
+    private Thread _encoderThread;
+
+    // The game time in milliseconds (advanced by PlayView frame period for each game frame)
+    private long _gameTime;
+
+    // The number of frames captured, written and dropped
+    private int _captureCount, _writeCount;
+    private volatile int _dropCount;
+
+    // The video output stream and frame size (for Y4M)
+    private OutputStream _videoOut;
+    private int _videoW, _videoH;
+
+    // The exception that stopped the encoder, if any
+    private volatile Exception _encoderException;
+
+    // Constants for formats
+    public enum Format { PNG, Y4M }
+
+    // Constants
+    private static final int QUEUE_SIZE = 32;
+    private static final Object END_OF_FRAMES = new Object();
+    private static final int STALL_TIMEOUT = 10000;
+
+    /**
+     * Constructor for output directory, format and frame rate.
+     */
+    public FrameRecorder(File aDir, Format aFormat, int aFrameRate)
+    {
+        if (aFrameRate <= 0)
+            throw new IllegalArgumentException("FrameRecorder: Frame rate must be positive: " + aFrameRate);
+        _dir = aDir;
+        _format = aFormat;
+        _frameRate = aFrameRate;
+    }
+
+    /**
+     * Returns the frame rate.
+     */
+    public int getFrameRate()  { return _frameRate; }
+
+    /**
+     * Sets whether capture waits for queue space instead of dropping frames.
+     */
+    public void setBlocking(boolean aValue)  { _blocking = aValue; }
+
+    /**
+     * Returns the number of frames captured.
+     */
+    public int getCaptureCount()  { return _captureCount; }
+
+    /**
+     * Returns the number of frames dropped (because encoder queue was full).
+     */
+    public int getDropCount()  { return _dropCount; }
+
+    /**
+     * Starts the encoder thread.
+     */
+    public void start()
+    {
+        _dir.mkdirs();
+        _encoderThread = new Thread(this::encoderLoop, "Snaptris FrameRecorder");
+        _encoderThread.start();
+    }
+
+    /**
+     * Called for each game frame (PlayView timer tick): Advances game time and captures frame for each recorder
+     * frame time passed, so output timing matches frame rate (rates above game frame rate repeat frames).
+     */
+    public void frameAdvanced(View aView)
+    {
+        _gameTime += PlayView.FRAME_PERIOD;
+        if (_gameTime < getCaptureTime())
+            return;
+
+        // Render frame once and queue it for each frame time passed
+        Image image = ViewUtils.getImage(aView);
+        while (_gameTime >= getCaptureTime())
+            queueFrame(image);
+    }
+
+    /**
+     * Returns the game time in milliseconds of the next frame to capture.
+     */
+    private double getCaptureTime()  { return _captureCount * 1000d / _frameRate; }
+
+    /**
+     * Queues given frame image for encoder.
+     */
+    private void queueFrame(Image anImage)
+    {
+        _captureCount++;
+
+        // If blocking, wait for space in queue
+        if (_blocking) {
+            try { _queue.put(anImage); }
+            catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+
+        // Otherwise, drop frame if queue is full, so game never waits for encoder
+        else if (!_queue.offer(anImage))
+            _dropCount++;
+    }
+
+    /**
+     * Signals end of frames and waits for encoder to finish writing queued frames.
+     */
+    public void finish()
+    {
+        try {
+            _queue.put(END_OF_FRAMES);
+            _encoderThread.join();
+        }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+
+        // Rethrow encoder exception
+        if (_encoderException != null)
+            throw new RuntimeException("FrameRecorder: Encoding failed", _encoderException);
+    }
+
+    /**
+     * Encoder thread loop: Takes frame images from queue and writes them until end of frames.
+     */
+    private void encoderLoop()
+    {
+        try {
+            for (Object frame = _queue.take(); frame != END_OF_FRAMES; frame = _queue.take())
+                writeFrame((Image) frame);
+            if (_videoOut != null)
+                _videoOut.close();
+        }
+
+        // On failure, keep draining queue so capture never blocks
+        catch (Exception e) {
+            _encoderException = e;
+            System.err.println("FrameRecorder: " + e);
+            try { while (_queue.take() != END_OF_FRAMES) _dropCount++; }
+            catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
+        }
+    }
+
+    /**
+     * Writes given frame image.
+     */
+    private void writeFrame(Image anImage) throws IOException
+    {
+        if (_format == Format.PNG)
+            writePNG(anImage);
+        else writeY4M(anImage);
+        _writeCount++;
+    }
+
+    /**
+     * Writes given frame image as next PNG file in image sequence.
+     */
+    private void writePNG(Image anImage) throws IOException
+    {
+        byte[] pngBytes = anImage.getBytesPNG();
+        File file = new File(_dir, String.format("frame%05d.png", _writeCount));
+        try (OutputStream fileOut = new FileOutputStream(file)) {
+            fileOut.write(pngBytes);
+        }
+    }
+
+    /**
+     * Writes given frame image as next frame of YUV4MPEG2 video (uncompressed 4:4:4).
+     */
+    private void writeY4M(Image anImage) throws IOException
+    {
+        // Get frame size
+        int frameW = anImage.getPixWidth();
+        int frameH = anImage.getPixHeight();
+
+        // If first frame, create file and write header
+        if (_videoOut == null) {
+            _videoW = frameW;
+            _videoH = frameH;
+            File file = new File(_dir, "frames.y4m");
+            _videoOut = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+            String header = "YUV4MPEG2 W" + frameW + " H" + frameH + " F" + _frameRate + ":1 Ip A1:1 C444\n";
+            _videoOut.write(header.getBytes("US-ASCII"));
+        }
+
+        // If frame size changed, drop frame (video frames must all be same size)
+        if (frameW != _videoW || frameH != _videoH) {
+            _dropCount++;
+            return;
+        }
+
+        // Convert RGBA to Y, U and V planes (BT.601)
+        byte[] rgba = anImage.getBytesRGBA();
+        int pixCount = frameW * frameH;
+        byte[] yuv = new byte[pixCount * 3];
+        for (int i = 0; i < pixCount; i++) {
+            int red = rgba[i * 4] & 0xFF;
+            int green = rgba[i * 4 + 1] & 0xFF;
+            int blue = rgba[i * 4 + 2] & 0xFF;
+            yuv[i] = (byte) ((66 * red + 129 * green + 25 * blue + 128 >> 8) + 16);
+            yuv[pixCount + i] = (byte) ((-38 * red - 74 * green + 112 * blue + 128 >> 8) + 128);
+            yuv[pixCount * 2 + i] = (byte) ((112 * red - 94 * green - 18 * blue + 128 >> 8) + 128);
+        }
+
+        // Write frame
+        _videoOut.write("FRAME\n".getBytes("US-ASCII"));
+        _videoOut.write(yuv);
+    }
+
+    /**
+     * Runs given PlayView headless (without timer or window), capturing frames as fast as possible
+     * until given frame count or game over. Stops early if bot disconnects or game stops advancing (like waiting
+     * for a lockstep bot that stopped sending actions).
+     */
+    public static void recordHeadless(PlayView aPlayView, FrameRecorder aRecorder, int aFrameCount)
+    {
+        // Configure PlayView
+        aPlayView.setSize(aPlayView.getPrefWidth(), aPlayView.getPrefHeight());
+        aPlayView.setHeadless(true);
+        aPlayView.setFrameRecorder(aRecorder);
+        aRecorder.setBlocking(true);
+        aRecorder.start();
+
+        // Start game and step frames (until frame count or end of game over sequence)
+        aPlayView.startGame();
+        long lastFrameTime = System.currentTimeMillis();
+        while (aRecorder.getCaptureCount() < aFrameCount && (!aPlayView.isGameOver() || aPlayView.isAnimating())) {
+
+            // Step frame and, if it advanced, continue
+            int frameCount = aPlayView.getFrameCount();
+            aPlayView.stepFrame();
+            if (aPlayView.getFrameCount() != frameCount) {
+                lastFrameTime = System.currentTimeMillis();
+                continue;
+            }
+
+            // If bot disconnected or game stalled, stop
+            BotServer botServer = aPlayView.getBotServer();
+            if (botServer != null && botServer.isClosed()) {
+                System.err.println("FrameRecorder: Bot disconnected, stopping recording");
+                break;
+            }
+            if (System.currentTimeMillis() - lastFrameTime > STALL_TIMEOUT) {
+                System.err.println("FrameRecorder: Game stopped advancing, stopping recording");
+                break;
+            }
+
+            // Wait a moment for bot, instead of spinning
+            try { Thread.sleep(1); }
+            catch (InterruptedException e) { Thread.currentThread().interrupt(); break; }
+        }
+
+        // Finish
+        aRecorder.finish();
+        aPlayView.setFrameRecorder(null);
+    }
+}
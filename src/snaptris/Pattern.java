@@ -1,5 +1,5 @@
 package snaptris;
-import snap.geom.*;
+import java.util.*;
 import snap.gfx.*;
 import snap.view.*;
 
@@ -8,55 +8,72 @@ import snap.view.*;
  */
 public class Pattern {
 
+    // The pattern name
+    public String name;
+
     // The number of tiles
     public int tileCount;
-    
+
     // The number of columns, rows and tiles
     public int colCount, rowCount;
-    
+
     // Array of packed (col,row) pairs of tiles for pattern
     public int[] fill;
-    
+
+    // Array of column bitmasks for each pattern row (bit 0 is leftmost column)
+    public int[] rowMasks;
+
+    // The column offset to apply when rotating right, to keep rotation about pattern center
+    public int rotateKickX;
+
     // The color of pattern
     private Color _color;
-    
-    // The pattern image
-    private Image _image;
 
-    // Pattern constants
-    public static Pattern SQUARE, STICK, BOAT, L1, L2, S1, S2;
-    public static Pattern[] ALL_PATTERNS;
+    // The pattern derived by rotating this pattern clockwise
+    private Pattern _rotateRight;
 
     // Tile constants
     public static final int TILE_SIZE = 32;
     public static final Effect TILE_EFFECT = new EmbossEffect(60, 120, 4);
     private static final int TILE_OFFSET = 4; // Due to EmbossEffect radius
+    private static final int TILE_IMAGE_SIZE = TILE_SIZE + TILE_OFFSET * 2;
 
-    /**
-     * Creates Patterns.
-     */
-    static
-    {
-        SQUARE = new Pattern(2, 2, Color.BLUE.brighter().brighter(), new int[] { 0, 0, 0, 1, 1, 0, 1, 1 });
-        STICK = new Pattern(4, 1, Color.MAGENTA, new int[] { 0, 0, 0, 1, 0, 2, 0, 3 });
-        BOAT = new Pattern(2, 3, Color.GREEN, new int[] { 0, 0, 1, 0, 2, 0, 1, 1 });
-        L1 = new Pattern(3, 2, Color.YELLOW, new int[] { 0, 0, 0, 1, 0, 2, 1, 2 });
-        L2 = new Pattern(3, 2, Color.ORANGE, new int[] { 1, 0, 1, 1, 0, 2, 1, 2 });
-        S1 = new Pattern(2, 3, Color.PINK, new int[] { 0, 0, 1, 0, 1, 1, 2, 1 });
-        S2 = new Pattern(2, 3, Color.CYAN, new int[] { 1, 0, 2, 0, 0, 1, 1, 1 });
-        ALL_PATTERNS = new Pattern[] { SQUARE, STICK, BOAT, L1, L2, S1, S2 };
-    }
+    // Tile images, shared by all patterns (and rotations) of the same color
+    private static Map<Color,Image> _tileImages = new HashMap<>();
+
+    // The scale at which tile images are rendered, so they can be drawn 1:1 when views are scaled
+    private static double _tileScale = 1;
 
     /**
-     * Constructor for row/col count, color and tile coords array.
+     * Constructor for name, row/col count, color and tile coords array.
      */
-    private Pattern(int aRowCount, int aColCount, Color aColor, int[] fillArray)
+    private Pattern(String aName, int aRowCount, int aColCount, Color aColor, int[] fillArray)
     {
+        name = aName;
         rowCount = aRowCount;
         colCount = aColCount;
         _color = aColor;
         fill = fillArray;
         tileCount = fill.length/2;
+
+        // Get row masks
+        rowMasks = new int[rowCount];
+        for (int i = 0; i < fill.length; i += 2)
+            rowMasks[fill[i + 1]] |= 1 << fill[i];
+    }
+
+    /**
+     * Returns the color of pattern.
+     */
+    public Color getColor()  { return _color; }
+
+    /**
+     * Returns the column bitmask for given pattern row, shifted to given grid column.
+     */
+    public int getRowMask(int aRow, int aCol)
+    {
+        int rowMask = rowMasks[aRow];
+        return aCol >= 0 ? rowMask << aCol : rowMask >>> -aCol;
     }
 
     /**
@@ -77,17 +94,21 @@ public class Pattern {
      */
     public void paintTile(Painter aPntr, double tileX, double tileY)
     {
-        if (_image == null) _image = getImage(_color);
-        aPntr.drawImage(_image, tileX - TILE_OFFSET, tileY - TILE_OFFSET);
+        Image image = getTileImage(_color);
+        aPntr.drawImage(image, tileX - TILE_OFFSET, tileY - TILE_OFFSET, TILE_IMAGE_SIZE, TILE_IMAGE_SIZE);
     }
 
     /**
      * Returns the pattern derived by rotating this pattern clockwise.
      */
-    public Pattern getRotateRight()
+    public Pattern getRotateRight()  { return _rotateRight; }
+
+    /**
+     * Returns whether given pattern has the same shape as this pattern.
+     */
+    private boolean isSameShape(Pattern aPattern)
     {
-        int[] rotatedFillArray = getRotatedFillArray();
-        return new Pattern(colCount, rowCount, _color, rotatedFillArray);
+        return aPattern.colCount == colCount && Arrays.equals(aPattern.rowMasks, rowMasks);
     }
 
     /**
@@ -95,23 +116,11 @@ public class Pattern {
      */
     private int[] getRotatedFillArray()
     {
-        // Get rotation about pattern center
-        double midX = colCount / 2d;
-        double midY = rowCount / 2d;
-        Transform rotateTransform = new Transform(midX, midY);
-        rotateTransform.rotate(-90);
-        rotateTransform.translate(-midX, -midY);
-
-        // Translate from old upper right point to origin
-        Point upperRightCorner = rotateTransform.transformXY(colCount, 0);
-        rotateTransform.preTranslate(-upperRightCorner.x, -upperRightCorner.y);
-
-        // Get rotated fill array
+        // Rotate each tile about pattern center, with old upper right corner moved to origin
         int[] rotatedFillArray = new int[fill.length];
         for (int i = 0; i < fill.length; i += 2) {
-            Point p = rotateTransform.transformXY(fill[i] + .5, fill[i+1] + .5);
-            rotatedFillArray[i] = (int) Math.round(p.x - .5);
-            rotatedFillArray[i + 1] = (int) Math.round(p.y - .5);
+            rotatedFillArray[i] = fill[i + 1];
+            rotatedFillArray[i + 1] = colCount - 1 - fill[i];
         }
 
         // Return
@@ -119,16 +128,83 @@ public class Pattern {
     }
 
     /**
-     * Creates an image of a tile for given color.
+     * Creates a pattern for given name, row/col count, color and tile coords array, with precomputed rotations.
+     */
+    static Pattern createPattern(String aName, int aRowCount, int aColCount, Color aColor, int[] fillArray)
+    {
+        // Create pattern and add rotations until shape repeats
+        Pattern pattern = new Pattern(aName, aRowCount, aColCount, aColor, fillArray);
+        Pattern lastPattern = pattern;
+        for (int i = 0; i < 3; i++) {
+            Pattern rotated = new Pattern(aName, lastPattern.colCount, lastPattern.rowCount, aColor, lastPattern.getRotatedFillArray());
+            if (rotated.isSameShape(pattern))
+                break;
+            lastPattern.setRotateRight(rotated);
+            lastPattern = rotated;
+        }
+
+        // Close rotation loop and return
+        lastPattern.setRotateRight(pattern);
+        return pattern;
+    }
+
+    /**
+     * Sets the rotated pattern and the kick offset to keep rotation about pattern center.
+     */
+    private void setRotateRight(Pattern aPattern)
+    {
+        _rotateRight = aPattern;
+        rotateKickX = (colCount - aPattern.colCount) / 2;
+    }
+
+    /**
+     * Returns the scale at which tile images are rendered.
+     */
+    public static synchronized double getTileScale()  { return _tileScale; }
+
+    /**
+     * Sets the scale at which tile images are rendered (clears cached tile images).
+     */
+    public static synchronized void setTileScale(double aScale)
+    {
+        if (aScale == _tileScale) return;
+        _tileScale = aScale;
+        _tileImages.clear();
+    }
+
+    /**
+     * Renders the tile images for all patterns in given pattern set, so first paint doesn't have to.
+     */
+    public static void prepareTileImages(PatternSet aPatternSet)
+    {
+        for (Pattern pattern : aPatternSet.getPatterns())
+            getTileImage(pattern._color);
+    }
+
+    /**
+     * Returns the tile image for given color.
+     */
+    private static synchronized Image getTileImage(Color aColor)
+    {
+        Image image = _tileImages.get(aColor);
+        if (image == null)
+            _tileImages.put(aColor, image = getImage(aColor, _tileScale));
+        return image;
+    }
+
+    /**
+     * Creates an image of a tile for given color and scale.
      */
-    private static Image getImage(Color aColor)
+    private static Image getImage(Color aColor, double aScale)
     {
+        double tileSize = TILE_SIZE * aScale;
+        Effect tileEffect = aScale != 1 ? new EmbossEffect(60, 120, TILE_OFFSET * aScale) : TILE_EFFECT;
         View view = new BoxView();
-        view.setSize(TILE_SIZE, TILE_SIZE);
-        view.setPrefSize(TILE_SIZE, TILE_SIZE);
-        view.setBorder(aColor.blend(Color.BLACK,.1), 1);
+        view.setSize(tileSize, tileSize);
+        view.setPrefSize(tileSize, tileSize);
+        view.setBorder(aColor.blend(Color.BLACK,.1), aScale);
         view.setFill(aColor);
-        view.setEffect(TILE_EFFECT);
+        view.setEffect(tileEffect);
         return ViewUtils.getImage(view);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,252 @@
+package snaptris;
+import java.io.*;
+import java.util.*;
+import snap.gfx.Color;
+
+/**
+ * A class to represent a set of patterns, loaded from a resource file (like Tetrominoes.txt).
+ */
+public class PatternSet {
+
+    // The set name
+    private String _name;
+
+    // The patterns
+    private Pattern[] _patterns;
+
+    // Cache of loaded pattern sets
+    private static Map<String,PatternSet> _patternSets = new HashMap<>();
+
+    // Constants for built-in pattern sets
+    public static final String TETROMINOES = "Tetrominoes";
+    public static final String PENTOMINOES = "Pentominoes";
+
+    // Constants for pattern file chars
+    private static final char TILE_CHAR = 'X';
+    private static final char EMPTY_CHAR = '.';
+    private static final char COMMENT_CHAR = '#';
+
+    /**
+     * Constructor for name and patterns.
+     */
+    private PatternSet(String aName, Pattern[] thePatterns)
+    {
+        _name = aName;
+        _patterns = thePatterns;
+    }
+
+    /**
+     * Returns the set name.
+     */
+    public String getName()  { return _name; }
+
+    /**
+     * Returns the patterns.
+     */
+    public Pattern[] getPatterns()  { return _patterns; }
+
+    /**
+     * Returns a random pattern.
+     */
+    public Pattern getRandomPattern()
+    {
+        int randomIndex = (int) Math.floor(Math.random() * _patterns.length);
+        return _patterns[randomIndex];
+    }
+
+    /**
+     * Returns the pattern set for given name (loaded from resource file of same name), compiled once and cached.
+     */
+    public static synchronized PatternSet getPatternSetForName(String aName)
+    {
+        PatternSet patternSet = _patternSets.get(aName);
+        if (patternSet != null)
+            return patternSet;
+
+        // Read set and add to cache
+        patternSet = readPatternSet(aName);
+        _patternSets.put(aName, patternSet);
+        return patternSet;
+    }
+
+    /**
+     * Reads the pattern set for given name from resource file.
+     */
+    private static PatternSet readPatternSet(String aName)
+    {
+        String resourceName = aName + ".txt";
+        InputStream inputStream = PatternSet.class.getResourceAsStream(resourceName);
+        if (inputStream == null)
+            throw new RuntimeException("PatternSet: Resource not found: " + resourceName);
+
+        // Read lines
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine())
+                lines.add(line.trim());
+        }
+        catch (IOException e) { throw new RuntimeException(e); }
+
+        // Parse patterns and return
+        Pattern[] patterns = parsePatterns(resourceName, lines);
+        return new PatternSet(aName, patterns);
+    }
+
+    /**
+     * Parses patterns from given lines: a header line "Name #RRGGBB" followed by rows of tile/empty chars.
+     */
+    private static Pattern[] parsePatterns(String aSource, List<String> theLines)
+    {
+        List<Pattern> patterns = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+
+        // Iterate over lines
+        for (int i = 0; i < theLines.size(); i++) {
+
+            // Skip blank lines and comments
+            String line = theLines.get(i);
+            if (line.isEmpty() || line.charAt(0) == COMMENT_CHAR)
+                continue;
+
+            // Get header name and color
+            String[] header = line.split("\\s+");
+            String lineInfo = aSource + " line " + (i + 1);
+            if (header.length != 2)
+                throw new IllegalArgumentException(lineInfo + ": Expected pattern header 'Name #RRGGBB': " + line);
+            String name = header[0];
+            if (!names.add(name))
+                throw new IllegalArgumentException(lineInfo + ": Duplicate pattern name: " + name);
+            Color color = parseColor(header[1], lineInfo);
+
+            // Get pattern rows
+            List<String> rows = new ArrayList<>();
+            while (i + 1 < theLines.size() && !theLines.get(i + 1).isEmpty() && theLines.get(i + 1).charAt(0) != COMMENT_CHAR)
+                rows.add(theLines.get(++i));
+
+            // Create pattern
+            Pattern pattern = parsePattern(name, color, rows, lineInfo);
+            patterns.add(pattern);
+        }
+
+        // Return
+        if (patterns.isEmpty())
+            throw new IllegalArgumentException(aSource + ": No patterns found");
+        return patterns.toArray(new Pattern[0]);
+    }
+
+    /**
+     * Parses and validates a pattern for given name, color and rows.
+     */
+    private static Pattern parsePattern(String aName, Color aColor, List<String> theRows, String lineInfo)
+    {
+        // Validate size
+        int rowCount = theRows.size();
+        int colCount = rowCount > 0 ? theRows.get(0).length() : 0;
+        int maxSize = PlayView.GRID_WIDTH;
+        if (rowCount == 0 || colCount == 0)
+            throw new IllegalArgumentException(lineInfo + ": Pattern has no rows: " + aName);
+        if (rowCount > maxSize || colCount > maxSize)
+            throw new IllegalArgumentException(lineInfo + ": Pattern larger than " + maxSize + " tiles: " + aName);
+
+        // Get tiles
+        boolean[][] tiles = new boolean[rowCount][colCount];
+        int tileCount = 0;
+        for (int row = 0; row < rowCount; row++) {
+            String rowStr = theRows.get(row);
+            if (rowStr.length() != colCount)
+                throw new IllegalArgumentException(lineInfo + ": Pattern rows have different lengths: " + aName);
+            for (int col = 0; col < colCount; col++) {
+                char c = rowStr.charAt(col);
+                if (c != TILE_CHAR && c != EMPTY_CHAR)
+                    throw new IllegalArgumentException(lineInfo + ": Invalid pattern char '" + c + "': " + aName);
+                if (tiles[row][col] = c == TILE_CHAR)
+                    tileCount++;
+            }
+        }
+
+        // Validate that pattern has no empty border rows/cols and that tiles are connected
+        for (int row = 0; row < rowCount; row++)
+            if (!isRowFilled(tiles, row, true))
+                throw new IllegalArgumentException(lineInfo + ": Pattern has empty row: " + aName);
+        for (int col = 0; col < colCount; col++)
+            if (!isRowFilled(tiles, col, false))
+                throw new IllegalArgumentException(lineInfo + ": Pattern has empty column: " + aName);
+        if (getConnectedCount(tiles) != tileCount)
+            throw new IllegalArgumentException(lineInfo + ": Pattern tiles not connected: " + aName);
+
+        // Get fill array of packed (col,row) pairs
+        int[] fill = new int[tileCount * 2];
+        for (int row = 0, i = 0; row < rowCount; row++) {
+            for (int col = 0; col < colCount; col++) {
+                if (!tiles[row][col]) continue;
+                fill[i++] = col;
+                fill[i++] = row;
+            }
+        }
+
+        // Create pattern with rotations
+        return Pattern.createPattern(aName, rowCount, colCount, aColor, fill);
+    }
+
+    /**
+     * Returns whether given row (or column) has any tiles.
+     */
+    private static boolean isRowFilled(boolean[][] theTiles, int anIndex, boolean isRow)
+    {
+        int count = isRow ? theTiles[0].length : theTiles.length;
+        for (int i = 0; i < count; i++)
+            if (isRow ? theTiles[anIndex][i] : theTiles[i][anIndex])
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns the number of tiles connected to first tile.
+     */
+    private static int getConnectedCount(boolean[][] theTiles)
+    {
+        int rowCount = theTiles.length, colCount = theTiles[0].length;
+        boolean[][] visited = new boolean[rowCount][colCount];
+        int firstCol = 0;
+        while (!theTiles[0][firstCol]) firstCol++;
+
+        // Flood fill from first tile
+        Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[] { 0, firstCol });
+        int count = 0;
+        while (!stack.isEmpty()) {
+            int[] rowCol = stack.pop();
+            int row = rowCol[0], col = rowCol[1];
+            if (row < 0 || row >= rowCount || col < 0 || col >= colCount || visited[row][col] || !theTiles[row][col])
+                continue;
+            visited[row][col] = true;
+            count++;
+            stack.push(new int[] { row - 1, col });
+            stack.push(new int[] { row + 1, col });
+            stack.push(new int[] { row, col - 1 });
+            stack.push(new int[] { row, col + 1 });
+        }
+
+        // Return
+        return count;
+    }
+
+    /**
+     * Parses a color string of form #RRGGBB.
+     */
+    private static Color parseColor(String aString, String lineInfo)
+    {
+        if (aString.length() != 7 || aString.charAt(0) != '#')
+            throw new IllegalArgumentException(lineInfo + ": Invalid color (expected #RRGGBB): " + aString);
+        try {
+            int rgb = Integer.parseInt(aString.substring(1), 16);
+            double red = (rgb >> 16 & 0xFF) / 255d;
+            double green = (rgb >> 8 & 0xFF) / 255d;
+            double blue = (rgb & 0xFF) / 255d;
+            return new Color(red, green, blue);
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(lineInfo + ": Invalid color (expected #RRGGBB): " + aString);
+        }
+    }
+}
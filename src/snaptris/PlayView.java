@@ -3,8 +3,8 @@ import java.util.*;
 import snap.geom.*;
 import snap.gfx.*;
 import snap.util.MathUtils;
+import snap.util.PropChangeListener;
 import snap.view.*;
-import snap.viewx.Explode;
 
 /**
  * This class is the main game view.
@@ -16,6 +16,9 @@ public class PlayView extends ParentView {
     
     // The next block
     private Block _nextBlock;
+
+    // The pattern set for blocks
+    private PatternSet _patternSet;
     
     // The list of stack rows
     private List<StackRow> _stackRows = new ArrayList<>();
@@ -26,24 +29,73 @@ public class PlayView extends ParentView {
     // Whether game is over
     private boolean _gameOver;
 
+    // The view to show exploding rows
+    private ExplodeView _explodeView = new ExplodeView();
+
     // The Run to be called for each frame during game loop
     private Runnable _timerFiredRun;
+
+    // The effective scale of this view (from ScaleBox and ancestors) for tile images, and when it last changed
+    private double _tileScale = 1;
+    private long _tileScaleTime;
+
+    // The ancestor views observed for scale and size changes (while showing)
+    private List<View> _scaleViews = new ArrayList<>();
+
+    // The listener for ancestor scale and size changes
+    private PropChangeListener _scaleLsnr = pc -> checkTileScale();
+
+    // Whether a delayed tile image rebuild is pending
+    private boolean _tileScaleRunPending;
+
+    // Whether game is run headless (frames stepped manually instead of by timer)
+    private boolean _headless;
+
+    // The recorder to capture frames
+    private FrameRecorder _frameRecorder;
+
+    // The number of frames advanced (for headless progress)
+    private int _frameCount;
+
+    // The server for external bot control
+    private BotServer _botServer;
+
+    // The auto player (for attract/soak mode)
+    private AutoPlayer _autoPlayer;
+
+    // The view anims played by this view (to count active anims)
+    private Set<ViewAnim> _anims = new HashSet<>();
+
+    // The view anims stepped on the frame clock in headless mode, and their elapsed times
+    private Map<ViewAnim,Integer> _headlessAnims = new LinkedHashMap<>();
     
     // The size of the field
     private static int TILE_SIZE = Block.TILE_SIZE;
     protected static int GRID_WIDTH = 10;
-    private static int GRID_HEIGHT = 20;
+    protected static int GRID_HEIGHT = 20;
     private static int BORDER_WIDTH = 2;
+    private static int TILE_SCALE_DELAY = 250;
+    protected static final int FRAME_PERIOD = 20;
     
     // Constants
     static final String NextBlock_Prop = "NextBlock";
+    static final String GameOver_Prop = "GameOver";
 
     /**
      * Constructor.
      */
     public PlayView()
+    {
+        this(PatternSet.getPatternSetForName(PatternSet.TETROMINOES));
+    }
+
+    /**
+     * Constructor for pattern set.
+     */
+    public PlayView(PatternSet aPatternSet)
     {
         super();
+        _patternSet = aPatternSet;
         setFill(Color.WHITE);
         setBorder(Color.BLACK, 2);
         enableEvents(KeyPress);
@@ -56,6 +108,9 @@ public class PlayView extends ParentView {
 
         // Get starting  block
         getNextBlock(true);
+
+        // Add listener to observe ancestor scale changes while showing
+        addPropChangeListener(pc -> showingChanged(), Showing_Prop);
     }
 
     /**
@@ -68,11 +123,17 @@ public class PlayView extends ParentView {
         removeChildren();
         _gameOver = false;
 
+        // Reset explosions
+        _explodeView.clear();
+        _explodeView.setSize(getWidth(), getHeight());
+        addChild(_explodeView);
+
         // Start timer, add piece
         setTimerRunning(true);
         addPiece();
         requestFocus();
-        getRootView().repaint();
+        if (getRootView() != null)
+            getRootView().repaint();
     }
 
     /**
@@ -83,6 +144,148 @@ public class PlayView extends ParentView {
         setTimerRunning(!isTimerRunning());
     }
 
+    /**
+     * Returns whether game is over.
+     */
+    public boolean isGameOver()  { return _gameOver; }
+
+    /**
+     * Returns whether game is run headless (frames stepped manually instead of by timer).
+     */
+    public boolean isHeadless()  { return _headless; }
+
+    /**
+     * Sets whether game is run headless (frames stepped manually instead of by timer).
+     */
+    public void setHeadless(boolean aValue)
+    {
+        if (aValue == _headless) return;
+        setTimerRunning(false);
+        _headless = aValue;
+        _explodeView.setHeadless(aValue);
+    }
+
+    /**
+     * Returns the number of frames advanced (timer ticks that weren't skipped waiting for a bot).
+     */
+    public int getFrameCount()  { return _frameCount; }
+
+    /**
+     * Returns the recorder to capture frames.
+     */
+    public FrameRecorder getFrameRecorder()  { return _frameRecorder; }
+
+    /**
+     * Sets the recorder to capture frames.
+     */
+    public void setFrameRecorder(FrameRecorder aRecorder)
+    {
+        _frameRecorder = aRecorder;
+    }
+
+    /**
+     * Returns the server for external bot control.
+     */
+    public BotServer getBotServer()  { return _botServer; }
+
+    /**
+     * Sets the server for external bot control.
+     */
+    public void setBotServer(BotServer aBotServer)
+    {
+        _botServer = aBotServer;
+    }
+
+    /**
+     * Returns the auto player (for attract/soak mode).
+     */
+    public AutoPlayer getAutoPlayer()  { return _autoPlayer; }
+
+    /**
+     * Sets the auto player (for attract/soak mode).
+     */
+    public void setAutoPlayer(AutoPlayer anAutoPlayer)
+    {
+        _autoPlayer = anAutoPlayer;
+    }
+
+    /**
+     * Returns the number of view anims played by this view that are still playing.
+     */
+    public int getActiveAnimCount()
+    {
+        _anims.removeIf(anim -> !anim.isPlaying());
+        return _anims.size() + _headlessAnims.size();
+    }
+
+    /**
+     * Returns whether any view anims or explosions are still active (like the game over sequence).
+     */
+    public boolean isAnimating()
+    {
+        return getActiveAnimCount() > 0 || _explodeView.getParticleCount() > 0 || _explodeView.getPendingCount() > 0;
+    }
+
+    /**
+     * Returns the view that shows exploding rows.
+     */
+    public ExplodeView getExplodeView()  { return _explodeView; }
+
+    /**
+     * Plays given anim of given view and tracks view anim for active anim count (or, if headless, adds view anim
+     * to be stepped on frame clock).
+     */
+    private void playAnim(View aView, ViewAnim anAnim)
+    {
+        if (_headless) {
+            _headlessAnims.put(aView.getAnim(0), 0);
+            return;
+        }
+        anAnim.play();
+        _anims.removeIf(anim -> !anim.isPlaying());
+        _anims.add(aView.getAnim(0));
+    }
+
+    /**
+     * Advances game by one frame (for headless mode). After game over, just advances anims and explosions, so the
+     * game over sequence can still be recorded.
+     */
+    public void stepFrame()
+    {
+        if (_gameOver) {
+            stepHeadlessAnims();
+            frameAdvanced();
+        }
+        else timerFired();
+    }
+
+    /**
+     * Advances headless view anims and explosions by one frame period.
+     */
+    private void stepHeadlessAnims()
+    {
+        for (Iterator<Map.Entry<ViewAnim,Integer>> iter = _headlessAnims.entrySet().iterator(); iter.hasNext(); ) {
+            Map.Entry<ViewAnim,Integer> entry = iter.next();
+            ViewAnim anim = entry.getKey();
+            int time = entry.getValue() + FRAME_PERIOD;
+            anim.setTime(time);
+            if (time >= anim.getMaxTime())
+                iter.remove();
+            else entry.setValue(time);
+        }
+        _explodeView.stepFrame(FRAME_PERIOD);
+    }
+
+    /**
+     * Called when a frame is done: Updates frame count and captures frame if recording.
+     */
+    private void frameAdvanced()
+    {
+        _frameCount++;
+        if (_frameRecorder != null)
+            _frameRecorder.frameAdvanced(this);
+    }
+
     /**
      * Returns whether timer is running.
      */
@@ -93,12 +296,12 @@ public class PlayView extends ParentView {
      */
     private void setTimerRunning(boolean aValue)
     {
-        if (aValue == isTimerRunning()) return;
+        if (aValue == isTimerRunning() || _headless) return;
 
         // Start timer
         if (_timerFiredRun == null) {
             _timerFiredRun = this::timerFired;
-            getEnv().runIntervals(_timerFiredRun, 20);
+            getEnv().runIntervals(_timerFiredRun, FRAME_PERIOD);
         }
 
         // Stop timer
@@ -108,6 +311,21 @@ public class PlayView extends ParentView {
         }
     }
 
+    /**
+     * Returns the pattern set for blocks.
+     */
+    public PatternSet getPatternSet()  { return _patternSet; }
+
+    /**
+     * Sets the pattern set for blocks (resets next block).
+     */
+    public void setPatternSet(PatternSet aPatternSet)
+    {
+        if (aPatternSet == _patternSet) return;
+        _patternSet = aPatternSet;
+        getNextBlock(true);
+    }
+
     /**
      * Adds a piece.
      */
@@ -123,10 +341,34 @@ public class PlayView extends ParentView {
         _block.setXY(blockX, blockY);
 
         // Add block
-        addChild(_block);
+        addChildBelowExplodeView(_block);
         _dropFast = false;
     }
 
+    /**
+     * Returns the current block.
+     */
+    public Block getBlock()  { return _block; }
+
+    /**
+     * Returns the grid column of the current block.
+     */
+    public int getBlockCol()
+    {
+        return (int) Math.round((_block.getX() - BORDER_WIDTH) / TILE_SIZE);
+    }
+
+    /**
+     * Returns the column bitmasks of stack rows (bottom row first).
+     */
+    public int[] getStackRowMasks()
+    {
+        int[] rowMasks = new int[_stackRows.size()];
+        for (int i = 0; i < rowMasks.length; i++)
+            rowMasks[i] = _stackRows.get(i).getFillMask();
+        return rowMasks;
+    }
+
     /**
      * Returns the next block with option to reset.
      */
@@ -134,7 +376,7 @@ public class PlayView extends ParentView {
     {
         Block nextBlock = _nextBlock;
         if (doReset) {
-            _nextBlock = Block.getRandomBlock();
+            _nextBlock = Block.getRandomBlock(_patternSet);
             firePropChange(NextBlock_Prop, nextBlock, _nextBlock);
         }
 
@@ -150,6 +392,21 @@ public class PlayView extends ParentView {
         // If no block, return
         if(_block == null) return;
 
+        // If bot is controlling game and not ready, just return
+        if (_botServer != null && !_botServer.frameAdvanced())
+            return;
+
+        // If auto playing, update auto player
+        if (_autoPlayer != null)
+            _autoPlayer.frameAdvanced();
+
+        // If headless, advance anims and explosions on frame clock
+        if (_headless)
+            stepHeadlessAnims();
+
+        // Capture frame if recording
+        frameAdvanced();
+
         // Update block position
         int dy = 3;
         if (_dropFast)
@@ -230,7 +487,16 @@ public class PlayView extends ParentView {
         rowY -= TILE_SIZE;
         newRow.setXY(BORDER_WIDTH, rowY);
         newRow._rowNum = _stackRows.size();
-        _stackRows.add(newRow); addChild(newRow);
+        _stackRows.add(newRow); addChildBelowExplodeView(newRow);
+    }
+
+    /**
+     * Adds given child view below ExplodeView, so particles are painted on top of rows and blocks.
+     */
+    private void addChildBelowExplodeView(View aView)
+    {
+        int explodeIndex = _explodeView.getParent() == this ? _explodeView.indexInParent() : getChildCount();
+        addChild(aView, explodeIndex);
     }
 
     /**
@@ -240,7 +506,7 @@ public class PlayView extends ParentView {
     {
         // Cache row index, explode row and remove from Rows list
         int rowIndex = _stackRows.indexOf(aRow);
-        new Explode(aRow, 20, 5).play();
+        _explodeView.explodeView(aRow);
         _stackRows.remove(aRow);
         removeChild(aRow);
 
@@ -249,7 +515,7 @@ public class PlayView extends ParentView {
             StackRow row = _stackRows.get(i);
             row.setY(getHeight() - (i + 1) * TILE_SIZE);
             row.setTransY(row.getTransY() - TILE_SIZE);
-            row.getAnimCleared(500).setTransY(0).play();
+            playAnim(row, row.getAnimCleared(500).setTransY(0));
         }
     }
 
@@ -307,11 +573,14 @@ public class PlayView extends ParentView {
     {
         _gameOver = true;
         setTimerRunning(false);
+        if (_botServer != null)
+            _botServer.gameOver();
+        firePropChange(GameOver_Prop, false, true);
 
         // Explode rows
         for (int i = 0; i < _stackRows.size(); i++) {
             StackRow row = _stackRows.get(_stackRows.size() - i - 1);
-            new Explode(row, 20, 5).playDelayed(i * 150);
+            _explodeView.explodeView(row, i * 150);
         }
 
         addBlockToRows();
@@ -326,8 +595,98 @@ public class PlayView extends ParentView {
         addChild(label);
         label.setManaged(false);
         label.setLean(Pos.CENTER);
+        SoakMonitor.addLiveView(label);
         int time = _stackRows.size() * 150;
-        label.getAnim(time).getAnim(time + 1200).setScale(1).setOpacity(1).setRotate(360).play();
+        playAnim(label, label.getAnim(time).getAnim(time + 1200).setScale(1).setOpacity(1).setRotate(360));
+    }
+
+    /**
+     * Returns the effective scale of this view in window (rounded to hundredths). Screen scale isn't included,
+     * since ViewUtils.getImage() already renders tile images at screen scale.
+     */
+    double getEffectiveScale()
+    {
+        double scale = 1;
+        for (View view = this; view != null; view = view.getParent())
+            scale *= view.getScaleX();
+        return Math.max(Math.round(scale * 100) / 100d, .25);
+    }
+
+    /**
+     * Called when Showing changes: Adds scale and size listeners to ancestors (root size changes when window
+     * moves between screens), or removes them when hidden.
+     */
+    private void showingChanged()
+    {
+        // Remove old listeners
+        for (View view : _scaleViews)
+            view.removePropChangeListener(_scaleLsnr, ScaleX_Prop, ScaleY_Prop, Width_Prop, Height_Prop);
+        _scaleViews.clear();
+
+        // If showing, add listeners to this view and ancestors and check scale
+        if (isShowing()) {
+            for (View view = this; view != null; view = view.getParent()) {
+                view.addPropChangeListener(_scaleLsnr, ScaleX_Prop, ScaleY_Prop, Width_Prop, Height_Prop);
+                _scaleViews.add(view);
+            }
+            checkTileScale();
+        }
+    }
+
+    /**
+     * Checks whether effective scale has changed and, if so, rebuilds tile images: Immediately if game hasn't started
+     * (first show and startup warm-up), otherwise once scale settles.
+     */
+    void checkTileScale()
+    {
+        double scale = getEffectiveScale();
+        if (scale == _tileScale) return;
+        _tileScale = scale;
+        _tileScaleTime = System.currentTimeMillis();
+
+        // If game hasn't started, rebuild now, so tile warm-up and first frames use this scale
+        if (_block == null) {
+            rebuildTileImages();
+            return;
+        }
+
+        // Schedule rebuild (debounced, so window resize drag doesn't rebuild repeatedly)
+        if (!_tileScaleRunPending) {
+            _tileScaleRunPending = true;
+            getEnv().runDelayed(this::tileScaleDelayFired, TILE_SCALE_DELAY);
+        }
+    }
+
+    /**
+     * Called after tile scale delay: Rebuilds tile images if scale hasn't changed since, otherwise waits again.
+     */
+    private void tileScaleDelayFired()
+    {
+        long elapsed = System.currentTimeMillis() - _tileScaleTime;
+        if (elapsed < TILE_SCALE_DELAY) {
+            getEnv().runDelayed(this::tileScaleDelayFired, (int) (TILE_SCALE_DELAY - elapsed));
+            return;
+        }
+
+        // Rebuild tile images at new scale
+        _tileScaleRunPending = false;
+        rebuildTileImages();
+    }
+
+    /**
+     * Rebuilds tile images at current tile scale and re-renders shadows.
+     */
+    private void rebuildTileImages()
+    {
+        Pattern.setTileScale(_tileScale);
+
+        // Re-render stack row and block shadow images and repaint
+        for (StackRow stackRow : _stackRows)
+            stackRow.resetEffect();
+        if (_block != null)
+            _block.resetEffect();
+        if (getRootView() != null)
+            getRootView().repaint();
     }
 
     /**
@@ -356,7 +715,7 @@ public class PlayView extends ParentView {
         _block.setX(_block.getX() - TILE_SIZE);
 
         _block.setTransX(TILE_SIZE);
-        _block.getAnimCleared(300).setTransX(0).play();
+        playAnim(_block, _block.getAnimCleared(300).setTransX(0));
     }
 
     /**
@@ -368,7 +727,7 @@ public class PlayView extends ParentView {
 
         _block.setX(_block.getX() + TILE_SIZE);
         _block.setTransX(-TILE_SIZE);
-        _block.getAnimCleared(300).setTransX(0).play();
+        playAnim(_block, _block.getAnimCleared(300).setTransX(0));
     }
 
     /**
@@ -379,5 +738,13 @@ public class PlayView extends ParentView {
     /**
      * Rotate block.
      */
-    public void rotateBlock()  { _block.rotateRight(); }
+    public void rotateBlock()
+    {
+        _block.rotateRight();
+
+        // Keep rotated block inside field
+        double maxX = getWidth() - BORDER_WIDTH - _block.getWidth();
+        double blockX = Math.max(Math.min(_block.getX(), maxX), BORDER_WIDTH);
+        _block.setX(blockX);
+    }
 }
\ No newline at end of file
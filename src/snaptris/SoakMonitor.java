@@ -0,0 +1,213 @@
+package snaptris;
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import snap.view.*;
+
+/**
+ * A class to run a PlayView in soak mode: Auto plays and restarts games indefinitely, while sampling heap usage,
+ * GC activity, live view count and anim count into a time series (and CSV file), and warning of monotonic growth.
+ */
+public class SoakMonitor {
+
+    // The PlayView
+    private PlayView _playView;
+
+    // The CSV file to append samples to (optional)
+    private File _file;
+
+    // The number of games played
+    private int _gameCount;
+
+    // The start time
+    private long _startTime;
+
+    // The last GC count and time
+    private long _lastGCCount, _lastGCTime;
+
+    // The samples (one long array of SAMPLE_NAMES values per sample), oldest first
+    private Deque<long[]> _samples = new ArrayDeque<>();
+
+    // The names of metrics currently flagged for monotonic growth
+    private Set<String> _growthFlags = new HashSet<>();
+
+    // The live game views (weak keys, so collected views drop out), tracked once a soak monitor is started
+    private static Map<View,Boolean> _liveViews;
+
+    // Constants for sample values
+    public static final String[] SAMPLE_NAMES = { "timeMs", "games", "heapUsed", "gcCount", "gcTimeMs", "views", "anims", "particles" };
+    private static final int HEAP_USED = 2, VIEWS = 5, ANIMS = 6, PARTICLES = 7;
+    private static final int[] GROWTH_CHECKS = { HEAP_USED, VIEWS, ANIMS, PARTICLES };
+
+    // Constants for timing and growth detection
+    private static final int SAMPLE_PERIOD = 5000;
+    private static final int RESTART_CHECK_PERIOD = 100;
+    private static final int GROWTH_WINDOW_COUNT = 4;
+    private static final int GROWTH_WINDOW_SIZE = 12;
+    private static final int MAX_SAMPLES = 100000;
+
+    /**
+     * Constructor for PlayView and CSV file (optional).
+     */
+    public SoakMonitor(PlayView aPlayView, File aFile)
+    {
+        _playView = aPlayView;
+        _file = aFile;
+    }
+
+    /**
+     * Starts auto play, auto restart and sampling.
+     */
+    public void start()
+    {
+        _startTime = System.currentTimeMillis();
+        if (_liveViews == null)
+            _liveViews = new WeakHashMap<>();
+        _playView.setAutoPlayer(new AutoPlayer(_playView));
+        _playView.addPropChangeListener(pc -> playViewGameOver(), PlayView.GameOver_Prop);
+        _playView.getEnv().runIntervals(this::sample, SAMPLE_PERIOD);
+
+        // Write CSV header
+        if (_file != null)
+            writeLine(String.join(",", SAMPLE_NAMES));
+    }
+
+    /**
+     * Called when PlayView game is over: Restarts game once game over sequence is done.
+     */
+    private void playViewGameOver()
+    {
+        _gameCount++;
+        _playView.getEnv().runDelayed(this::restartWhenDone, RESTART_CHECK_PERIOD);
+    }
+
+    /**
+     * Restarts game if game over anims and explosions are done, otherwise checks again later.
+     */
+    private void restartWhenDone()
+    {
+        if (_playView.isAnimating())
+            _playView.getEnv().runDelayed(this::restartWhenDone, RESTART_CHECK_PERIOD);
+        else if (_playView.isGameOver())
+            _playView.startGame();
+    }
+
+    /**
+     * Takes a sample, adds to time series, writes it to file and checks for growth.
+     */
+    private void sample()
+    {
+        // Get heap used
+        Runtime runtime = Runtime.getRuntime();
+        long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+
+        // Get GC count and time since last sample
+        long gcCount = 0, gcTime = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(gcBean.getCollectionCount(), 0);
+            gcTime += Math.max(gcBean.getCollectionTime(), 0);
+        }
+        long gcCountDelta = gcCount - _lastGCCount, gcTimeDelta = gcTime - _lastGCTime;
+        _lastGCCount = gcCount;
+        _lastGCTime = gcTime;
+
+        // Get live game views (attached or not), their playing anims, pending explosions and particles
+        long viewCount = _liveViews.size();
+        long animCount = getPlayingAnimCount() + _playView.getExplodeView().getPendingCount();
+        long particleCount = _playView.getExplodeView().getParticleCount();
+
+        // Add sample
+        long time = System.currentTimeMillis() - _startTime;
+        long[] sample = { time, _gameCount, heapUsed, gcCountDelta, gcTimeDelta, viewCount, animCount, particleCount };
+        _samples.add(sample);
+        if (_samples.size() > MAX_SAMPLES)
+            _samples.removeFirst();
+
+        // Write sample to file
+        if (_file != null) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < sample.length; i++)
+                sb.append(i > 0 ? "," : "").append(sample[i]);
+            writeLine(sb.toString());
+        }
+
+        // Check for growth
+        for (int valueIndex : GROWTH_CHECKS)
+            checkGrowth(valueIndex);
+    }
+
+    /**
+     * Checks whether given sample value has grown monotonically and prints warning when flag changes.
+     */
+    private void checkGrowth(int aValueIndex)
+    {
+        String name = SAMPLE_NAMES[aValueIndex];
+        boolean isGrowing = isMonotonicGrowth(aValueIndex);
+        if (isGrowing && _growthFlags.add(name))
+            System.err.println("SoakMonitor: WARNING: " + name + " is growing monotonically after " + _gameCount + " games");
+        else if (!isGrowing && _growthFlags.remove(name))
+            System.err.println("SoakMonitor: " + name + " is no longer growing");
+    }
+
+    /**
+     * Returns whether given sample value grows monotonically: The minimum of each of the last windows of samples
+     * is greater than the minimum of the window before (minimums filter out collectable garbage and transient views).
+     */
+    public boolean isMonotonicGrowth(int aValueIndex)
+    {
+        int sampleCount = _samples.size();
+        if (sampleCount < GROWTH_WINDOW_COUNT * GROWTH_WINDOW_SIZE)
+            return false;
+
+        // Iterate over windows (newest first) and check that each window min is less than the one after
+        Iterator<long[]> sampleIter = _samples.descendingIterator();
+        long nextMin = Long.MAX_VALUE;
+        for (int window = 0; window < GROWTH_WINDOW_COUNT; window++) {
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < GROWTH_WINDOW_SIZE; i++)
+                min = Math.min(min, sampleIter.next()[aValueIndex]);
+            if (min >= nextMin)
+                return false;
+            nextMin = min;
+        }
+
+        // Return true since every window min grew
+        return true;
+    }
+
+    /**
+     * Appends given line to CSV file.
+     */
+    private void writeLine(String aLine)
+    {
+        try (Writer writer = new FileWriter(_file, true)) {
+            writer.write(aLine);
+            writer.write('\n');
+        }
+        catch (IOException e) { System.err.println("SoakMonitor: " + e); }
+    }
+
+    /**
+     * Returns the number of live game views with a playing anim.
+     */
+    private static int getPlayingAnimCount()
+    {
+        int count = 0;
+        for (View view : _liveViews.keySet()) {
+            ViewAnim anim = view.getAnim(-1);
+            if (anim != null && anim.isPlaying())
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Registers given game view (like StackRow, Block or label) as live if soak monitoring, so views retained after
+     * they are removed are still counted.
+     */
+    public static void addLiveView(View aView)
+    {
+        if (_liveViews != null)
+            _liveViews.put(aView, Boolean.TRUE);
+    }
+}
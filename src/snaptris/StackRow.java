@@ -1,5 +1,4 @@
 package snaptris;
-import java.util.*;
 import snap.geom.*;
 import snap.gfx.*;
 import snap.util.MathUtils;
@@ -12,9 +11,9 @@ public class StackRow extends View {
 
     // The array of filled tiles
     private Pattern[] _cols = new Pattern[GRID_WIDTH];
-    
-    // The array of tile rects
-    private Rect[] _tileRects;
+
+    // The bitmask of filled columns (bit 0 is leftmost column)
+    private int _fillMask;
     
     // The row number
     protected int _rowNum;
@@ -22,6 +21,8 @@ public class StackRow extends View {
     // Constants
     private static int TILE_SIZE = Block.TILE_SIZE;
     private static int GRID_WIDTH = PlayView.GRID_WIDTH;
+    private static int FULL_MASK = (1 << GRID_WIDTH) - 1;
+    private static int TILE_INSET = 2;
 
     /**
      * Constructor.
@@ -33,27 +34,7 @@ public class StackRow extends View {
         double rowH = TILE_SIZE;
         setSize(rowW, rowH);
         setEffect(Block.BLOCK_EFFECT);
-    }
-
-    /**
-     * Returns the row tile rects in parent coords.
-     */
-    public Rect[] getTileRectsInParent()
-    {
-        if(_tileRects != null) return _tileRects;
-
-        List <Rect> tileRects = new ArrayList<>();
-        for(int i = 0; i < _cols.length; i++) {
-            Pattern col = _cols[i];
-            if(col == null)
-                continue;
-            double tileX = i * TILE_SIZE;
-            Rect rect = new Rect(getX() + tileX, getY(), TILE_SIZE, TILE_SIZE);
-            tileRects.add(rect);
-        }
-
-        // Return array
-        return _tileRects = tileRects.toArray(new Rect[0]);
+        SoakMonitor.addLiveView(this);
     }
 
     /**
@@ -65,20 +46,34 @@ public class StackRow extends View {
         if(MathUtils.lt(aBlock.getMaxY(), getY()))
             return false;
 
-        // Iterate over block tiles and see if any intersect row tiles
-        for(int i = 0; i < aBlock.getTileCount(); i++) {
-            Rect blockTileRect = aBlock.getTileRectInParent(i);
-            Rect blockTileRect2 = blockTileRect.getInsetRect(2, 2);
-            Rect[] rowTileRectsInParentCoords = getTileRectsInParent();
-            for(Rect rowTileRect : rowTileRectsInParentCoords)
-                if(rowTileRect.intersectsShape(blockTileRect2))
-                    return true;
+        // Get block column and pattern
+        int blockCol = getColForBlock(aBlock);
+        Pattern pattern = aBlock._pattern;
+
+        // Iterate over block pattern rows and see if any (inset) tiles overlap row and hit row tiles
+        for(int i = 0; i < pattern.rowCount; i++) {
+            double tileY = aBlock.getY() + i * TILE_SIZE + TILE_INSET;
+            double tileMaxY = tileY + TILE_SIZE - TILE_INSET * 2;
+            if(tileY >= getMaxY())
+                break;
+            if(tileMaxY <= getY())
+                continue;
+            if((pattern.getRowMask(i, blockCol) & _fillMask) != 0)
+                return true;
         }
 
         // Return false since no block tiles hit row tiles
         return false;
     }
 
+    /**
+     * Returns the grid column for given block.
+     */
+    private int getColForBlock(Block aBlock)
+    {
+        return (int) Math.round((aBlock.getX() - getX()) / TILE_SIZE);
+    }
+
     /**
      * Adds block tiles.
      */
@@ -91,21 +86,30 @@ public class StackRow extends View {
                 continue;
             int colIndex = (int) Math.floor(tileX / TILE_SIZE);
             _cols[colIndex] = aBlock._pattern;
+            _fillMask |= 1 << colIndex;
         }
 
-        // Repaint & reset TileRects
-        repaint(); _tileRects = null;
+        // Repaint
+        repaint();
     }
 
+    /**
+     * Returns the bitmask of filled columns (bit 0 is leftmost column).
+     */
+    public int getFillMask()  { return _fillMask; }
+
     /**
      * Returns whether row is full.
      */
-    public boolean isFull()
+    public boolean isFull()  { return _fillMask == FULL_MASK; }
+
+    /**
+     * Resets shadow effect, so cached shadow image is re-rendered (at new scale) on next paint.
+     */
+    public void resetEffect()
     {
-        for (Pattern col : _cols)
-            if (col == null)
-                return false;
-        return true;
+        setEffect(null);
+        setEffect(Block.BLOCK_EFFECT);
     }
 
     /**
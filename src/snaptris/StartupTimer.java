@@ -0,0 +1,60 @@
+package snaptris;
+import java.util.*;
+
+/**
+ * A class to record the times of app startup phases (like first frame and playable).
+ */
+public class StartupTimer {
+
+    // The start time in nanoseconds
+    private static long _startTime = System.nanoTime();
+
+    // The phase names and times (in milliseconds since start), in order of completion
+    private static Map<String,Long> _phaseTimes = new LinkedHashMap<>();
+
+    // Constants for startup phases
+    public static final String FIRST_FRAME = "FirstFrame";
+    public static final String PIECES_LOADED = "PiecesLoaded";
+    public static final String UI_LOADED = "UILoaded";
+    public static final String TILES_READY = "TilesReady";
+    public static final String PLAYABLE = "Playable";
+
+    /**
+     * Resets start time to now.
+     */
+    public static synchronized void start()
+    {
+        _startTime = System.nanoTime();
+        _phaseTimes.clear();
+    }
+
+    /**
+     * Marks given phase as completed now (if not already marked).
+     */
+    public static synchronized void markPhase(String aName)
+    {
+        if (_phaseTimes.containsKey(aName)) return;
+        long time = (System.nanoTime() - _startTime) / 1000000;
+        _phaseTimes.put(aName, time);
+    }
+
+    /**
+     * Returns the time in milliseconds since start for given phase, or -1 if not yet completed.
+     */
+    public static synchronized long getPhaseTime(String aName)
+    {
+        Long time = _phaseTimes.get(aName);
+        return time != null ? time : -1;
+    }
+
+    /**
+     * Returns a report of phase times.
+     */
+    public static synchronized String getReport()
+    {
+        StringBuilder sb = new StringBuilder("Startup:");
+        for (Map.Entry<String,Long> entry : _phaseTimes.entrySet())
+            sb.append(' ').append(entry.getKey()).append('=').append(entry.getValue()).append("ms");
+        return sb.toString();
+    }
+}
@@ -1,5 +1,7 @@
 package snaptris;
-import snap.gfx.Color;
+import java.io.File;
+import java.io.PrintStream;
+import snap.gfx.*;
 import snap.util.SnapUtils;
 import snap.view.*;
 
@@ -7,13 +9,48 @@ import snap.view.*;
  * The main UI controller for the game.
  */
 public class TetrisPane extends ViewOwner {
-    
+
     // The PlayView
     private PlayView _playView;
-    
+
     // The next block box
     private BoxView _nextBlockBox;
 
+    // The ScaleBox that holds placeholder until main UI is loaded
+    private ScaleBox _scaleBox;
+
+    // The placeholder label shown until main UI is loaded
+    private Label _loadingLabel;
+
+    // The pattern set loaded in background
+    private PatternSet _patternSet;
+
+    // Whether first frame has painted, whether startup (pattern set, main UI and tile images) is done,
+    // and whether game was started
+    private boolean _firstFramePainted, _startupDone, _gameStarted;
+
+    // Whether to print startup times and exit when playable
+    private static boolean _startupBench;
+
+    // The name of the pattern set for blocks
+    private static String _patternSetName = PatternSet.TETROMINOES;
+
+    // The frame recorder options: output dir, format, frame rate, frame count and whether headless
+    private static File _recordDir;
+    private static FrameRecorder.Format _recordFormat = FrameRecorder.Format.PNG;
+    private static int _recordFrameRate = 25;
+    private static int _recordFrameCount = 1500;
+    private static boolean _recordHeadless;
+
+    // The bot server options: whether enabled, loopback port (or 0 for stdin/stdout) and whether lockstep
+    private static boolean _botEnabled;
+    private static int _botPort;
+    private static boolean _botLockstep;
+
+    // The soak mode options: whether enabled and CSV file for samples (optional)
+    private static boolean _soak;
+    private static File _soakFile;
+
     /**
      * Constructor.
      */
@@ -26,25 +63,161 @@ public class TetrisPane extends ViewOwner {
      * Create UI.
      */
     protected View createUI()
+    {
+        // Create cheap placeholder for first frame
+        _loadingLabel = new Label("Loading...");
+        _loadingLabel.setFont(new Font("Arial Bold", 36));
+        _loadingLabel.setTextColor(Color.GRAY);
+
+        // Create ScaleBox to work with small window sizes (and to notice first frame, since it is the root content)
+        _scaleBox = new ScaleBox(_loadingLabel, true, true) {
+            protected void paintFront(Painter aPntr)
+            {
+                super.paintFront(aPntr);
+                firstFramePainted();
+            }
+        };
+
+        // Read and compile pattern set in background, then continue startup on app thread
+        Runnable loadPatternSetRun = () -> {
+            try {
+                PatternSet patternSet = PatternSet.getPatternSetForName(_patternSetName);
+                ViewUtils.runLater(() -> patternSetLoaded(patternSet));
+            }
+            catch (Throwable e) { ViewUtils.runLater(() -> startupFailed(e)); }
+        };
+        new Thread(loadPatternSetRun, "Snaptris PatternSet").start();
+
+        // Return
+        return _scaleBox;
+    }
+
+    /**
+     * Called when first frame (with placeholder) has painted: Continues startup in later event if pattern set is loaded.
+     */
+    private void firstFramePainted()
+    {
+        if (_firstFramePainted) return;
+        _firstFramePainted = true;
+        StartupTimer.markPhase(StartupTimer.FIRST_FRAME);
+        if (_patternSet != null)
+            runLater(this::loadMainUIAndTiles);
+    }
+
+    /**
+     * Called on app thread when pattern set is loaded: Continues startup if first frame has painted.
+     */
+    private void patternSetLoaded(PatternSet aPatternSet)
+    {
+        StartupTimer.markPhase(StartupTimer.PIECES_LOADED);
+        _patternSet = aPatternSet;
+        if (_firstFramePainted)
+            loadMainUIAndTiles();
+    }
+
+    /**
+     * Loads main UI, then renders tile images in a later event, so placeholder can paint between stages.
+     */
+    private void loadMainUIAndTiles()
+    {
+        // Load main UI
+        PatternSet patternSet = _patternSet;
+        try { loadMainUI(patternSet); }
+        catch (Throwable e) { startupFailed(e); return; }
+        StartupTimer.markPhase(StartupTimer.UI_LOADED);
+
+        // Render tile images (at PlayView scale) in later event, then start game
+        runLater(() -> {
+            try {
+                _playView.checkTileScale();
+                Pattern.prepareTileImages(patternSet);
+            }
+            catch (Throwable e) { startupFailed(e); return; }
+            StartupTimer.markPhase(StartupTimer.TILES_READY);
+            _startupDone = true;
+            startGameIfReady();
+        });
+    }
+
+    /**
+     * Creates main UI (from TetrisPane.snp) with PlayView for given pattern set.
+     */
+    private void loadMainUI(PatternSet aPatternSet)
     {
         // Do normal version
         RowView mainRowView = (RowView) super.createUI();
 
         // Swap out placeholder with PlayView
-        _playView = new PlayView();
-        ViewUtils.replaceView(mainRowView.getChild(0), _playView);
+        PlayView playView = new PlayView(aPatternSet);
+        ViewUtils.replaceView(mainRowView.getChild(0), playView);
 
-        // Create ScaleBox to work with small window sizes
-        ScaleBox scaleBox = new ScaleBox(mainRowView, true, true);
+        // Install in ScaleBox
+        setMainUI(mainRowView, playView);
+    }
 
-        // Return
-        return scaleBox;
+    /**
+     * Called when startup fails: Reports error and shows it in placeholder.
+     */
+    private void startupFailed(Throwable anError)
+    {
+        System.err.println("TetrisPane: Startup failed:");
+        anError.printStackTrace();
+        _loadingLabel.setText("Startup failed: " + anError.getMessage());
+        _scaleBox.setContent(_loadingLabel);
+    }
+
+    /**
+     * Starts game, once startup is done and PlayView is showing.
+     */
+    private void startGameIfReady()
+    {
+        if (!_startupDone || _gameStarted || !_playView.isShowing()) return;
+        _gameStarted = true;
+
+        // Start game after layout
+        runLater(() -> {
+            _playView.startGame();
+            StartupTimer.markPhase(StartupTimer.PLAYABLE);
+            if (_startupBench) {
+                getDiagnosticStream().println(StartupTimer.getReport());
+                System.exit(0);
+            }
+        });
     }
 
     /**
-     * Initialize UI.
+     * Sets the main UI, replacing placeholder.
      */
-    protected void initUI()
+    private void setMainUI(RowView mainRowView, PlayView playView)
+    {
+        _playView = playView;
+        _scaleBox.setContent(mainRowView);
+        initMainUI();
+
+        // If recording, start frame recorder (and finish on exit)
+        if (_recordDir != null) {
+            FrameRecorder frameRecorder = new FrameRecorder(_recordDir, _recordFormat, _recordFrameRate);
+            frameRecorder.start();
+            _playView.setFrameRecorder(frameRecorder);
+            Runtime.getRuntime().addShutdownHook(new Thread(frameRecorder::finish));
+        }
+
+        // If bot enabled, start bot server
+        if (_botEnabled) {
+            BotServer botServer = new BotServer(_playView, _botPort, _botLockstep);
+            botServer.start();
+            _playView.setBotServer(botServer);
+        }
+
+        // If soak mode, start soak monitor (auto play, auto restart and sampling)
+        if (_soak)
+            new SoakMonitor(_playView, _soakFile).start();
+    }
+
+    /**
+     * Initialize main UI.
+     */
+    private void initMainUI()
     {
         getView("TitleLabel", Label.class).setTextColor(Color.WHITE);
 
@@ -54,14 +227,9 @@ public class TetrisPane extends ViewOwner {
 
         // Add PlayView listener to call playViewNextBlockChanged()
         _playView.addPropChangeListener(pc -> playViewNextBlockChanged(), PlayView.NextBlock_Prop);
-    }
 
-    /**
-     * Initialize showing.
-     */
-    protected void initShowing()
-    {
-        runLater(() -> _playView.startGame());
+        // Add PlayView listener to start game when showing
+        _playView.addPropChangeListener(pc -> startGameIfReady(), View.Showing_Prop);
     }
 
     /**
@@ -95,9 +263,86 @@ public class TetrisPane extends ViewOwner {
      */
     public static void main(String[] args)
     {
+        StartupTimer.start();
+
+        // Handle args
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-startupBench"))
+                _startupBench = true;
+            else if (arg.equals("-pieces") && i + 1 < args.length)
+                _patternSetName = args[++i];
+            else if ((arg.equals("-record") || arg.equals("-recordHeadless")) && i + 1 < args.length) {
+                _recordDir = new File(args[++i]);
+                _recordHeadless = arg.equals("-recordHeadless");
+            }
+            else if (arg.equals("-format") && i + 1 < args.length)
+                _recordFormat = FrameRecorder.Format.valueOf(args[++i].toUpperCase());
+            else if (arg.equals("-fps") && i + 1 < args.length)
+                _recordFrameRate = Integer.parseInt(args[++i]);
+            else if (arg.equals("-frames") && i + 1 < args.length)
+                _recordFrameCount = Integer.parseInt(args[++i]);
+            else if (arg.equals("-bot") && i + 1 < args.length) {
+                String botArg = args[++i];
+                _botEnabled = true;
+                _botPort = botArg.equals("stdio") ? 0 : Integer.parseInt(botArg);
+            }
+            else if (arg.equals("-botLockstep"))
+                _botLockstep = true;
+            else if (arg.equals("-soak")) {
+                _soak = true;
+                if (i + 1 < args.length && !args[i + 1].startsWith("-"))
+                    _soakFile = new File(args[++i]);
+            }
+        }
+
+        // Reject invalid frame rate
+        if (_recordDir != null && _recordFrameRate <= 0) {
+            System.err.println("TetrisPane: Frame rate must be positive: " + _recordFrameRate);
+            System.exit(1);
+        }
+
+        // If headless recording, just record and exit
+        if (_recordHeadless) {
+            ViewUtils.runLater(() -> recordHeadlessMain());
+            return;
+        }
+
         ViewUtils.runLater(() -> appThreadMain());
     }
 
+    /**
+     * Main method for headless recording: Runs PlayView without window as fast as possible and writes frames.
+     */
+    static void recordHeadlessMain()
+    {
+        FrameRecorder frameRecorder = new FrameRecorder(_recordDir, _recordFormat, _recordFrameRate);
+        long startTime = System.currentTimeMillis();
+        PlayView playView = new PlayView(PatternSet.getPatternSetForName(_patternSetName));
+
+        // Drive game with bot server (if enabled) or auto player
+        if (_botEnabled) {
+            BotServer botServer = new BotServer(playView, _botPort, _botLockstep);
+            botServer.start();
+            playView.setBotServer(botServer);
+        }
+        else playView.setAutoPlayer(new AutoPlayer(playView));
+
+        // Record
+        FrameRecorder.recordHeadless(playView, frameRecorder, _recordFrameCount);
+        long time = System.currentTimeMillis() - startTime;
+        getDiagnosticStream().println("Recorded " + frameRecorder.getCaptureCount() + " frames to " + _recordDir + " in " + time + "ms");
+        System.exit(0);
+    }
+
+    /**
+     * Returns the stream for diagnostics: Stderr if bot uses stdout as protocol channel, otherwise stdout.
+     */
+    private static PrintStream getDiagnosticStream()
+    {
+        return _botEnabled && _botPort == 0 ? System.err : System.out;
+    }
+
     /**
      * Standard main method.
      */
@@ -107,4 +352,4 @@ public class TetrisPane extends ViewOwner {
         tetrisPane.getWindow().setMaximized(SnapUtils.isWebVM);
         tetrisPane.setWindowVisible(true);
     }
-}
\ No newline at end of file
+}